@@ -5,6 +5,8 @@ import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.physics.box2d.Box2D;
 import com.badlogic.gdx.scenes.scene2d.ui.ProgressBar;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
@@ -12,12 +14,18 @@ import com.badlogic.gdx.utils.ObjectMap;
 import com.kotcrab.vis.ui.VisUI;
 import xyz.angm.game.network.Client;
 import xyz.angm.game.network.NetworkInterface;
+import xyz.angm.game.network.Relay;
 import xyz.angm.game.network.Server;
+import xyz.angm.game.network.SessionManager;
 import xyz.angm.game.ui.screens.AssetLoadingScreen;
+import xyz.angm.game.ui.screens.GameScreen;
 import xyz.angm.game.ui.screens.MapLoadingScreen;
 import xyz.angm.game.ui.screens.MessageScreen;
-import xyz.angm.game.world.blocks.BlockProperties;
-import xyz.angm.game.world.blocks.Material;
+import xyz.angm.game.world.TerrainBenchmark;
+import xyz.angm.game.world.World;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /** The main class of the game. */
 public class Defactory extends com.badlogic.gdx.Game {
@@ -25,8 +33,29 @@ public class Defactory extends com.badlogic.gdx.Game {
     /** Static since loading texture more than once is pointless. Also prevents having to pass textures around everywhere. */
     @SuppressWarnings({"LibGDXStaticResource", "GDXJavaStaticResource"}) // Only applies to Android
     public static final AssetManager assets = new AssetManager();
-
+    /** The atlas containing all textures in 'textures/', packed by the 'packTextures' Gradle task. Drawing from a
+     * single texture lets batches draw blocks, entities and terrain without flushing on every texture switch. */
+    private static final String TEXTURE_ATLAS = "atlas/textures.atlas";
+    /** Executor shared by all worlds and servers in this process, for simulation of hosted sessions and periodic background work.
+     * Static for the same reason as assets; also allows all sessions to share the same threads. */
+    public static final ScheduledExecutorService executor = Executors.newScheduledThreadPool(Runtime.getRuntime().availableProcessors());
+
+    private final SessionManager sessionManager;
+    private final LaunchOptions options;
     private NetworkInterface netIface;
+    private Relay relay;
+
+    /** Create a new game with default options. */
+    public Defactory() {
+        this(new LaunchOptions());
+    }
+
+    /** Create a new game.
+     * @param options The options to launch with. */
+    public Defactory(LaunchOptions options) {
+        this.options = options;
+        sessionManager = new SessionManager(options.trustedRelays);
+    }
 
     @Override
     public void create() {
@@ -39,20 +68,37 @@ public class Defactory extends com.badlogic.gdx.Game {
 
     @Override
     public void dispose() {
+        sessionManager.dispose();
+        if (relay != null) relay.dispose();
         assets.dispose();
         if (netIface != null) disposeNetworkInterface();
+        executor.shutdownNow();
+    }
+
+    /** Called once all assets are loaded. Starts hosting sessions, the relay and benchmarks, if requested. */
+    public void assetsLoaded() {
+        for (int i = 0; i < options.hostedSessions; i++) {
+            if (sessionManager.createSession(System.currentTimeMillis() + i) == null) {
+                Gdx.app.error("Defactory", "Could not start hosted session " + (i + 1) + " of " + options.hostedSessions + ".");
+            }
+        }
+        if (options.relayUpstream != null) {
+            relay = new Relay(options.relayPort, options.relayUpstream, options.trustedRelays);
+            if (!relay.start()) relay = null;
+        }
+        if (options.terrainBenchmarkRuns > 0) executor.execute(() -> TerrainBenchmark.run(options.terrainBenchmarkRuns));
     }
 
     /** Starts a game as the player. Will create a server for players playing as beasts to join. */
     public void startGame() {
-        netIface = new Server(this);
+        netIface = new Server(this::getLocalWorld, options.trustedRelays);
         netIface.start();
         setScreen(new MapLoadingScreen(this, System.currentTimeMillis()));
     }
 
     /** Joins a server. Allows the user to play as a beast trying to destroy the base. */
     public void joinGame() {
-        Client client = new Client();
+        Client client = (options.joinAddress == null) ? new Client() : new Client(options.joinAddress);
         netIface = client;
 
         client.addListener(packet -> {
@@ -67,6 +113,15 @@ public class Defactory extends com.badlogic.gdx.Game {
         return netIface;
     }
 
+    public SessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    // Returns the world of the local game, or null if it is not running
+    private World getLocalWorld() {
+        return (getScreen() instanceof GameScreen) ? ((GameScreen) getScreen()).getWorld() : null;
+    }
+
     /** Only callable on the client.
      * @return The client if one exists.
      * @throws ClassCastException when called on server. */
@@ -80,6 +135,16 @@ public class Defactory extends com.badlogic.gdx.Game {
         return netIface instanceof Server;
     }
 
+    /** Returns a texture from the texture atlas. Only call once assets are loaded.
+     * The lookup is linear in the amount of textures; keep the result instead of calling this every frame.
+     * @param name The path of the texture relative to 'textures/', without the '.png' suffix. Example: 'blocks/core'
+     * @return The region of the texture in the atlas. */
+    public static TextureRegion getTextureRegion(String name) {
+        TextureRegion region = assets.get(TEXTURE_ATLAS, TextureAtlas.class).findRegion(name);
+        if (region == null) throw new IllegalArgumentException("No texture named " + name + " in the texture atlas!");
+        return region;
+    }
+
     /** Removes and properly disposes of the network interface. Should be called when exiting gameplay (returning to menu). */
     public void disposeNetworkInterface() {
         netIface.dispose();
@@ -87,14 +152,7 @@ public class Defactory extends com.badlogic.gdx.Game {
 
     // Registers all assets required by the game
     private void registerAllAssets() {
-        assets.load("textures/beast.png", Texture.class);
-        assets.load("textures/bullet.png", Texture.class);
-        assets.load("textures/player.png", Texture.class);
-        for (int i = 0; i < 4; i++) assets.load("textures/map/grass" + i + ".png", Texture.class);
-        assets.load("textures/map/stone.png", Texture.class);
-        assets.load("textures/map/stoneTile.png", Texture.class);
-        Material.loadTextures();
-        BlockProperties.getAllBlocks().forEach(properties -> assets.load(properties.getFullTexturePath(), Texture.class));
+        assets.load(TEXTURE_ATLAS, TextureAtlas.class);
     }
 
     // Creates the libGDX skin used for some elements.
@@ -0,0 +1,81 @@
+package xyz.angm.game;
+
+import com.badlogic.gdx.utils.ObjectSet;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+
+/** Options given to the game on launch, usually from the command line. */
+public class LaunchOptions {
+
+    /** The amount of sessions to host in the background once assets are loaded. See {@link xyz.angm.game.network.SessionManager}. */
+    public int hostedSessions = 0;
+    /** The server to relay to spectators, or null if this game should not run a relay. See {@link xyz.angm.game.network.Relay}. */
+    public InetSocketAddress relayUpstream = null;
+    /** The port the relay listens on for spectators. */
+    public int relayPort = 0;
+    /** Addresses of relays trusted to forward the beast spawns of many spectators; all others get the limit of a single client.
+     * See {@link xyz.angm.game.network.Relay}. */
+    public final ObjectSet<InetAddress> trustedRelays = new ObjectSet<>();
+    /** The server to join when joining a game, or null to search one on the local network. */
+    public InetSocketAddress joinAddress = null;
+    /** The amount of terrain generation benchmark runs to do once assets are loaded. See {@link xyz.angm.game.world.TerrainBenchmark}. */
+    public int terrainBenchmarkRuns = 0;
+
+    /** Parses command line arguments. Supported are:
+     * '--sessions N' to host N additional sessions in the background,
+     * '--relay HOST:PORT LISTEN_PORT' to relay the server at HOST:PORT to spectators connecting on LISTEN_PORT,
+     * '--trust-relay HOST' to trust a relay running on HOST, can be given multiple times,
+     * '--join HOST:PORT' to join the server at HOST:PORT instead of searching one,
+     * '--benchmark-terrain N' to benchmark terrain generation with N runs in the background.
+     * @param args The arguments to parse.
+     * @return The options.
+     * @throws IllegalArgumentException If an argument is unknown or malformed. */
+    public static LaunchOptions parse(String[] args) {
+        LaunchOptions options = new LaunchOptions();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--sessions":
+                        options.hostedSessions = Integer.parseInt(args[++i]);
+                        break;
+                    case "--relay":
+                        options.relayUpstream = parseAddress(args[++i]);
+                        options.relayPort = Integer.parseInt(args[++i]);
+                        break;
+                    case "--trust-relay":
+                        options.trustedRelays.add(parseHost(args[++i]));
+                        break;
+                    case "--join":
+                        options.joinAddress = parseAddress(args[++i]);
+                        break;
+                    case "--benchmark-terrain":
+                        options.terrainBenchmarkRuns = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Missing value for argument: " + args[args.length - 1]);
+        }
+        return options;
+    }
+
+    // Resolves a host name or IP address
+    private static InetAddress parseHost(String host) {
+        try {
+            return InetAddress.getByName(host);
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Unknown host: " + host);
+        }
+    }
+
+    // Parses an address of the form HOST:PORT
+    private static InetSocketAddress parseAddress(String address) {
+        int separator = address.lastIndexOf(':');
+        if (separator == -1) throw new IllegalArgumentException("Address is missing a port: " + address);
+        return new InetSocketAddress(address.substring(0, separator), Integer.parseInt(address.substring(separator + 1)));
+    }
+}
@@ -0,0 +1,37 @@
+package xyz.angm.game.network;
+
+/** All blocks placed or removed on the server during a single tick.
+ * Edits are range-encoded: consecutive tiles on the same row with the same edit are sent as a single run.
+ * Removals are to be applied before placements. */
+public class BlockEditBatch {
+
+    /** Length of a single removal run: x, y, length. */
+    public static final int REMOVED_RUN_SIZE = 3;
+    /** Length of a single placement run: x, y, length, block type, direction ordinal. */
+    public static final int PLACED_RUN_SIZE = 5;
+    /** The maximum amount of ints in a batch, removals and placements together.
+     * Keeps a batch below the object buffer size, even if every int takes the maximum of 5 bytes. */
+    public static final int MAX_INTS = 1024;
+
+    private int[] removed;
+    private int[] placed;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private BlockEditBatch() {}
+
+    /** Construct a new batch.
+     * @param removed Runs of removed tiles, see {@link #REMOVED_RUN_SIZE}.
+     * @param placed Runs of placed blocks, see {@link #PLACED_RUN_SIZE}. */
+    public BlockEditBatch(int[] removed, int[] placed) {
+        this.removed = removed;
+        this.placed = placed;
+    }
+
+    public int[] getRemoved() {
+        return removed;
+    }
+
+    public int[] getPlaced() {
+        return placed;
+    }
+}
@@ -0,0 +1,28 @@
+package xyz.angm.game.network;
+
+/** All changes to the state of blocks (health, stored material) on the server during a single tick.
+ * Each change is a compact record instead of the whole block; only the latest value of a field is sent per tick.
+ * To be applied after the {@link BlockEditBatch} of the same tick. */
+public class BlockStateBatch {
+
+    /** Length of a single record: x, y, field ID, value. Field IDs are the FIELD_ constants of Block. */
+    public static final int RECORD_SIZE = 4;
+    /** The maximum amount of records in a batch.
+     * Keeps a batch below the object buffer size, even if every int takes the maximum of 5 bytes. */
+    public static final int MAX_RECORDS = 256;
+
+    private int[] records;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private BlockStateBatch() {}
+
+    /** Construct a new batch.
+     * @param records The records of all changes, see {@link #RECORD_SIZE}. */
+    public BlockStateBatch(int[] records) {
+        this.records = records;
+    }
+
+    public int[] getRecords() {
+        return records;
+    }
+}
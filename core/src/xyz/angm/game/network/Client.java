@@ -5,49 +5,63 @@ import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
 
 import java.io.IOException;
-import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.function.Consumer;
 
 /** A client for receiving network communications from a server.
- * Uses {@link ClientDiscoveryRunnable} to find a server.
+ * Uses {@link ServerDiscovery} to find a server, unless given an address.
  * In the context of the game, the server is run by the player, and the clients are beasts controlled by spectators. */
 public class Client extends NetworkInterface {
 
-    /** The amount of time the client will wait for a server to respond to a discovery call, in ms. */
+    /** The maximum amount of time the client will wait for a server to respond to a discovery call, in ms. */
     private static final int SERVER_WAIT_TIME = 1000;
 
-    private final com.esotericsoftware.kryonet.Client kryoClient = new com.esotericsoftware.kryonet.Client();
+    private final ServerDiscovery discovery = new ServerDiscovery(SERVER_WAIT_TIME);
+    private final com.esotericsoftware.kryonet.Client kryoClient = new com.esotericsoftware.kryonet.Client(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE, serialization);
+    /** The address of the server to connect to; null if one should be searched. */
+    private final InetSocketAddress serverAddress;
+
+    /** Create a client that searches for a server on the local network. */
+    public Client() {
+        this(null);
+    }
+
+    /** Create a client connecting to the given server, which can also be a {@link Relay}.
+     * @param serverAddress The address of the server; null to search one on the local network. */
+    public Client(InetSocketAddress serverAddress) {
+        this.serverAddress = serverAddress;
+    }
 
     @Override
     public boolean start() {
-        InetAddress address = searchServer();
-        if (address == null) {
+        InetSocketAddress server = (serverAddress == null) ? searchServer() : serverAddress;
+        if (server == null) {
             Gdx.app.log("Client", "No servers found.");
             return false;
         }
 
         try {
             kryoClient.start();
-            registerClasses(kryoClient.getKryo());
-            kryoClient.connect(3000, address, PORT);
+            registerClasses(serialization.getKryo());
+            kryoClient.connect(3000, server.getAddress(), server.getPort());
         } catch (IOException e) {
-            Gdx.app.error("Client", "Couldn't connect to server at address " + address.getHostName() + "!");
+            Gdx.app.error("Client", "Couldn't connect to server at address " + server.getHostString() + "!");
             return false;
         }
         return true;
     }
 
-    // Search a server; connect if one is found, return false if not
-    private static InetAddress searchServer() {
-        ClientDiscoveryRunnable searchRunnable = new ClientDiscoveryRunnable();
-        Thread serverSearch = new Thread(searchRunnable);
-        serverSearch.start();
-        try {
-            serverSearch.join(SERVER_WAIT_TIME);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        return searchRunnable.getAddress();
+    // Search a server; returns as soon as one responded, or null if none did. Picks the least loaded one if there are multiple
+    private InetSocketAddress searchServer() {
+        new Thread(discovery).start();
+        DiscoveredServer server = discovery.awaitFirst(SERVER_WAIT_TIME);
+        return (server == null) ? null : new InetSocketAddress(server.getAddress(), server.getPort());
+    }
+
+    /** @return All servers found on the local network. Keeps growing until discovery finished, see SERVER_WAIT_TIME. */
+    public List<DiscoveredServer> getDiscoveredServers() {
+        return discovery.getServers();
     }
 
     /** Add a listener to be called when an object is received from the server.
@@ -72,9 +86,15 @@ public class Client extends NetworkInterface {
         kryoClient.sendTCP(toSend);
     }
 
+    @Override
+    Connection[] getConnections() {
+        return kryoClient.isConnected() ? new Connection[]{kryoClient} : new Connection[0];
+    }
+
     @Override
     public void dispose() {
         kryoClient.close();
+        metrics.dispose();
     }
 
     /** Used for giving status messages to listeners. */
@@ -84,6 +104,10 @@ public class Client extends NetworkInterface {
         /** Start of a beast wave. */
         WAVE_START,
         /** End of a beast wave. */
-        WAVE_END
+        WAVE_END,
+        /** Sent by the client once its world is ready; the server will start a {@link WorldStateStream}. */
+        STATE_REQUEST,
+        /** Sent by a {@link Relay} after connecting; its spawn rate limit is raised, as it forwards the spawns of many spectators. */
+        RELAY
     }
 }
\ No newline at end of file
@@ -0,0 +1,54 @@
+package xyz.angm.game.network;
+
+import com.esotericsoftware.kryonet.Connection;
+
+/** Decides when entity snapshots are sent to a single connection, based on how congested it is.
+ * Congested or slow connections get snapshots less often. Snapshots are never queued: if the connection
+ * isn't ready for one it is dropped, since the next one supersedes it anyway. */
+class ConnectionScheduler {
+
+    /** Amount of bytes pending in the write buffer at which a connection is considered congested. */
+    private static final int CONGESTED_BYTES = NetworkInterface.WRITE_BUFFER_SIZE / 8;
+    /** Round trip time above which a connection only gets every second snapshot, in ms. */
+    private static final int SLOW_RTT = 250;
+    /** The maximum amount of ticks between two snapshots sent to a connection. */
+    private static final int MAX_INTERVAL = 8;
+    /** The amount of ticks between two round trip time measurements. */
+    private static final int RTT_UPDATE_TICKS = 20;
+
+    private final Connection connection;
+    /** The amount of ticks between two snapshots; 1 sends every snapshot. */
+    private int interval = 1;
+    private int ticksSinceSend = 0;
+    private int ticksSinceRttUpdate = 0;
+
+    /** Create a new scheduler.
+     * @param connection The connection to schedule sending to. */
+    ConnectionScheduler(Connection connection) {
+        this.connection = connection;
+        connection.updateReturnTripTime();
+    }
+
+    /** Call on every entity update tick. Sends the snapshot if the connection is due for one and not congested.
+     * @param snapshot The newest snapshot. */
+    void tick(Object snapshot) {
+        if (++ticksSinceRttUpdate >= RTT_UPDATE_TICKS) {
+            connection.updateReturnTripTime();
+            ticksSinceRttUpdate = 0;
+        }
+
+        ticksSinceSend++;
+        if (connection.getTcpWriteBufferSize() > CONGESTED_BYTES) {
+            // Back off quickly; this snapshot is dropped
+            interval = Math.min(MAX_INTERVAL, interval * 2);
+            return;
+        }
+        if (ticksSinceSend < interval) return;
+
+        // Not congested; slowly return to the full rate
+        int minInterval = (connection.getReturnTripTime() > SLOW_RTT) ? 2 : 1;
+        interval = Math.max(minInterval, interval - 1);
+        connection.sendTCP(snapshot);
+        ticksSinceSend = 0;
+    }
+}
@@ -0,0 +1,95 @@
+package xyz.angm.game.network;
+
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** A server found on the local network, along with the metadata it sent in its discovery response.
+ * Also contains the format of discovery packets. */
+public class DiscoveredServer {
+
+    /** Sent by clients searching for servers. */
+    static final byte[] REQUEST = "DISCOVER_GAME_REQUEST".getBytes(StandardCharsets.US_ASCII);
+    /** Start of a response sent by servers; followed by protocol version, port, seed, player count and load. */
+    private static final byte[] RESPONSE = "DISCOVER_GAME_RESPONSE".getBytes(StandardCharsets.US_ASCII);
+    /** The size of a response packet in bytes. */
+    static final int RESPONSE_SIZE = RESPONSE.length + 4 + 4 + 8 + 4 + 4;
+
+    private final InetAddress address;
+    private final int protocolVersion;
+    private final int port;
+    private final long seed;
+    private final int playerCount;
+    private final float load;
+
+    private DiscoveredServer(InetAddress address, int protocolVersion, int port, long seed, int playerCount, float load) {
+        this.address = address;
+        this.protocolVersion = protocolVersion;
+        this.port = port;
+        this.seed = seed;
+        this.playerCount = playerCount;
+        this.load = load;
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    public int getProtocolVersion() {
+        return protocolVersion;
+    }
+
+    /** Returns the TCP port of the server. Differs between sessions hosted in the same process. */
+    public int getPort() {
+        return port;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** Returns the amount of clients connected to the server. */
+    public int getPlayerCount() {
+        return playerCount;
+    }
+
+    /** Returns the load of the server; the time its last world tick took relative to the 60 FPS target. Above 1 is overloaded. */
+    public float getLoad() {
+        return load;
+    }
+
+    /** Writes a response into the buffer. The buffer will be cleared first.
+     * @param buffer The buffer to write to; needs to hold at least RESPONSE_SIZE bytes.
+     * @param port The TCP port of the server.
+     * @param seed The world seed of the server.
+     * @param playerCount The amount of clients connected.
+     * @param load The load of the server. */
+    static void writeResponse(ByteBuffer buffer, int port, long seed, int playerCount, float load) {
+        buffer.clear();
+        buffer.put(RESPONSE).putInt(NetworkInterface.PROTOCOL_VERSION).putInt(port).putLong(seed).putInt(playerCount).putFloat(load);
+    }
+
+    /** Reads a response.
+     * @param data The data received.
+     * @param length The length of the data received.
+     * @param address The address the data was received from.
+     * @return The server, or null if the data is not a valid response. */
+    static DiscoveredServer readResponse(byte[] data, int length, InetAddress address) {
+        if (length != RESPONSE_SIZE || !startsWith(data, length, RESPONSE)) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(data, RESPONSE.length, length - RESPONSE.length);
+        return new DiscoveredServer(address, buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getInt(), buffer.getFloat());
+    }
+
+    /** Returns if the data received is a discovery request. */
+    static boolean isRequest(byte[] data, int length) {
+        return length == REQUEST.length && startsWith(data, length, REQUEST);
+    }
+
+    private static boolean startsWith(byte[] data, int length, byte[] prefix) {
+        if (length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.utils.Pool;
+
+import java.nio.ByteBuffer;
+
+/** An object already serialized by kryo, which can be written to any amount of connections without serializing it again.
+ * The bytes are kept in a pooled buffer. Writing to a connection copies them right away, so a message can be freed
+ * as soon as it was sent to all connections.
+ * Kryo's output does not depend on the connection, so clients can read it like any other object. */
+class EncodedMessage {
+
+    private static final Pool<EncodedMessage> pool = new Pool<EncodedMessage>() {
+        @Override
+        protected EncodedMessage newObject() {
+            return new EncodedMessage();
+        }
+    };
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(NetworkInterface.OBJECT_BUFFER_SIZE);
+    private Class<?> type;
+
+    private EncodedMessage() {}
+
+    /** Obtain an empty message from the pool.
+     * @param type The type of the object that will be encoded into it.
+     * @return The message. */
+    static EncodedMessage obtain(Class<?> type) {
+        EncodedMessage message;
+        synchronized (pool) {
+            message = pool.obtain();
+        }
+        message.type = type;
+        message.buffer.clear();
+        return message;
+    }
+
+    /** Returns the buffer to encode the object into. Call {@link #encoded()} once done. */
+    ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /** Call once the object was encoded into the buffer. */
+    void encoded() {
+        buffer.flip();
+    }
+
+    /** Writes the encoded object into the buffer.
+     * @param target The buffer to write into. */
+    void writeTo(ByteBuffer target) {
+        target.put(buffer.array(), 0, buffer.limit());
+    }
+
+    /** Returns the type of the encoded object. */
+    Class<?> getType() {
+        return type;
+    }
+
+    /** Returns the length of the encoded object in bytes. */
+    int getLength() {
+        return buffer.limit();
+    }
+
+    /** Call once the message was sent to all connections. Returns it to the pool. */
+    void free() {
+        synchronized (pool) {
+            pool.free(this);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+
+/** The state of all moving entities on the server at a point in time.
+ * Sent to clients periodically; clients interpolate between them for smooth movement. */
+public class EntitySnapshot {
+
+    private long serverTime;
+    private float playerX;
+    private float playerY;
+    private int playerHealth;
+    private int coreHealth;
+    private float[] beastPositions;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. Also used by the pool of {@link EntitySnapshotPublisher}. */
+    EntitySnapshot() {}
+
+    /** Construct a new snapshot.
+     * @param serverTime The time on the server the snapshot was taken at, in ms.
+     * @param playerX The X axis of the player position.
+     * @param playerY The Y axis of the player position.
+     * @param playerHealth The health of the player.
+     * @param coreHealth The health of the player's CORE.
+     * @param beastPositions The positions of all beasts, as x/y pairs in the order of the beasts on the server. */
+    public EntitySnapshot(long serverTime, float playerX, float playerY, int playerHealth, int coreHealth, float[] beastPositions) {
+        this.serverTime = serverTime;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.playerHealth = playerHealth;
+        this.coreHealth = coreHealth;
+        this.beastPositions = beastPositions;
+    }
+
+    // Reuses this snapshot for new state; only called by EntitySnapshotPublisher before it is published
+    void set(long serverTime, float playerX, float playerY, int playerHealth, int coreHealth, Array<Vector2> beastPositions) {
+        this.serverTime = serverTime;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.playerHealth = playerHealth;
+        this.coreHealth = coreHealth;
+
+        // The array is only reused if the amount of beasts did not change, as it is sent in full
+        if (this.beastPositions == null || this.beastPositions.length != beastPositions.size * 2) {
+            this.beastPositions = new float[beastPositions.size * 2];
+        }
+        for (int i = 0; i < beastPositions.size; i++) {
+            this.beastPositions[i * 2] = beastPositions.get(i).x;
+            this.beastPositions[i * 2 + 1] = beastPositions.get(i).y;
+        }
+    }
+
+    public long getServerTime() {
+        return serverTime;
+    }
+
+    public float getPlayerX() {
+        return playerX;
+    }
+
+    public float getPlayerY() {
+        return playerY;
+    }
+
+    public int getPlayerHealth() {
+        return playerHealth;
+    }
+
+    public int getCoreHealth() {
+        return coreHealth;
+    }
+
+    public float[] getBeastPositions() {
+        return beastPositions;
+    }
+}
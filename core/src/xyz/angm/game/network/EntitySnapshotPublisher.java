@@ -0,0 +1,53 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.TimeUtils;
+import xyz.angm.game.world.entities.Player;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/** Hands entity snapshots from the thread simulating the world to the network thread without locking the game loop.
+ * The world publishes a copy of its state at the end of every tick through a single atomic reference;
+ * the network thread takes the latest one when it needs one. Snapshots are never changed once published,
+ * and are pooled: a snapshot not taken before the next one is published is reused, as is one the network thread is done with. */
+public class EntitySnapshotPublisher {
+
+    private final Pool<EntitySnapshot> pool = new Pool<EntitySnapshot>(4) {
+        @Override
+        protected EntitySnapshot newObject() {
+            return new EntitySnapshot();
+        }
+    };
+    private final AtomicReference<EntitySnapshot> latest = new AtomicReference<>();
+
+    /** Publishes the current state. Only call from the thread simulating the world.
+     * @param player The player.
+     * @param beastPositions The positions of all beasts, in the order of the beasts. */
+    public void publish(Player player, Array<Vector2> beastPositions) {
+        EntitySnapshot snapshot;
+        synchronized (pool) {
+            snapshot = pool.obtain();
+        }
+        snapshot.set(TimeUtils.millis(), player.getPosition().x, player.getPosition().y,
+                player.getHealth(), player.getCore().getHealth(), beastPositions);
+
+        EntitySnapshot superseded = latest.getAndSet(snapshot);
+        if (superseded != null) free(superseded); // Never taken, nobody else holds it
+    }
+
+    /** Takes the latest snapshot. The caller owns it until passed to {@link #free(EntitySnapshot)}.
+     * @return The snapshot, or null if none was published since the last call. */
+    EntitySnapshot take() {
+        return latest.getAndSet(null);
+    }
+
+    /** Returns a taken snapshot to the pool. It must not be used afterwards.
+     * @param snapshot The snapshot. */
+    void free(EntitySnapshot snapshot) {
+        synchronized (pool) {
+            pool.free(snapshot);
+        }
+    }
+}
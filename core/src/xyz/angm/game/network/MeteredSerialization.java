@@ -0,0 +1,85 @@
+package xyz.angm.game.network;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.KryoException;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.KryoSerialization;
+import com.esotericsoftware.kryonet.Serialization;
+
+import java.nio.ByteBuffer;
+
+/** A kryo serialization that records the size of every object written or read, and the time it took, into {@link NetworkMetrics}.
+ * Objects can also be encoded once into an {@link EncodedMessage}, which is then copied as-is when written to a connection. */
+class MeteredSerialization implements Serialization {
+
+    private final KryoSerialization serialization = new KryoSerialization();
+    private final NetworkMetrics metrics;
+
+    /** Create a new serialization.
+     * @param metrics The metrics to record into. */
+    MeteredSerialization(NetworkMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /** Returns the kryo instance used. Classes need to be registered with it. */
+    Kryo getKryo() {
+        return serialization.getKryo();
+    }
+
+    /** Serializes an object once, to be sent to multiple connections.
+     * @param object The object to encode.
+     * @return The encoded object; free it once it was sent. Null if the object is larger than the object buffer size;
+     *         clients could not read it, so it should not be sent. */
+    EncodedMessage encode(Object object) {
+        EncodedMessage message = EncodedMessage.obtain(object.getClass());
+        long startTime = System.nanoTime();
+        try {
+            serialization.write(null, message.getBuffer(), object);
+        } catch (KryoException e) { // Buffer overflow
+            message.free();
+            return null;
+        }
+        message.encoded();
+        metrics.recordEncoded(object.getClass(), System.nanoTime() - startTime);
+        return message;
+    }
+
+    @Override
+    public void write(Connection connection, ByteBuffer buffer, Object object) {
+        int start = buffer.position();
+        long startTime = System.nanoTime();
+        if (object instanceof EncodedMessage) { // Already serialized; just copy
+            EncodedMessage message = (EncodedMessage) object;
+            message.writeTo(buffer);
+            metrics.recordWritten(message.getType(), message.getLength() + getLengthLength(), System.nanoTime() - startTime);
+            return;
+        }
+
+        serialization.write(connection, buffer, object);
+        metrics.recordWritten(object.getClass(), buffer.position() - start + getLengthLength(), System.nanoTime() - startTime);
+    }
+
+    @Override
+    public Object read(Connection connection, ByteBuffer buffer) {
+        int start = buffer.position();
+        long startTime = System.nanoTime();
+        Object object = serialization.read(connection, buffer);
+        metrics.recordRead(object.getClass(), buffer.position() - start + getLengthLength(), System.nanoTime() - startTime);
+        return object;
+    }
+
+    @Override
+    public int getLengthLength() {
+        return serialization.getLengthLength();
+    }
+
+    @Override
+    public void writeLength(ByteBuffer buffer, int length) {
+        serialization.writeLength(buffer, length);
+    }
+
+    @Override
+    public int readLength(ByteBuffer buffer) {
+        return serialization.readLength(buffer);
+    }
+}
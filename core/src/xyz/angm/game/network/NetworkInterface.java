@@ -1,8 +1,10 @@
 package xyz.angm.game.network;
 
+import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.utils.Array;
 import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryonet.Connection;
 import xyz.angm.game.world.TileVector;
 import xyz.angm.game.world.blocks.Block;
 import xyz.angm.game.world.entities.Beast;
@@ -13,6 +15,25 @@ public abstract class NetworkInterface {
 
     /** The port all network communication takes place on. */
     static final int PORT = 35953;
+    /** Version of the network protocol. Clients only join servers with the same version. Increment on incompatible changes. */
+    static final int PROTOCOL_VERSION = 7;
+    /** The size of the write buffer of every connection, in bytes. */
+    static final int WRITE_BUFFER_SIZE = 65536;
+    /** The maximum size of a single serialized object, in bytes. */
+    static final int OBJECT_BUFFER_SIZE = 8192;
+    /** System property pointing to a directory. If set, network metrics are periodically dumped into it. */
+    private static final String METRICS_DUMP_PROPERTY = "defactory.netMetrics";
+
+    /** Metrics of all traffic going through this interface. */
+    final NetworkMetrics metrics = new NetworkMetrics(this::getConnections);
+    /** Serialization to be used by the kryonet endpoint; records into metrics. */
+    final MeteredSerialization serialization = new MeteredSerialization(metrics);
+
+    /** Creates a new interface. Starts dumping metrics if requested by system property. */
+    NetworkInterface() {
+        String metricsDirectory = System.getProperty(METRICS_DUMP_PROPERTY);
+        if (metricsDirectory != null) metrics.startDumping(Gdx.files.absolute(metricsDirectory));
+    }
 
     /** Registers all required classes for network communication to a kryo serializer.
      * @param kryo The kryo instance to register on */
@@ -22,12 +43,32 @@ public abstract class NetworkInterface {
         kryo.register(Block.class);
         kryo.register(Block.Direction.class);
         kryo.register(TileVector.class);
+        kryo.register(Beast[].class);
+        kryo.register(Client.Status.class);
+        kryo.register(WorldStateHeader.class);
+        kryo.register(WorldStateChunk.class);
+        kryo.register(BlockEditBatch.class);
+        kryo.register(BlockStateBatch.class);
+        kryo.register(int[].class);
+        kryo.register(EntitySnapshot.class);
+        kryo.register(float[].class);
+        kryo.register(SpawnRejection.class);
+        kryo.register(SpawnRejection.Reason.class);
+        kryo.register(SpawnRequest.class);
+        kryo.register(SpawnConfirmation.class);
 
         kryo.register(Vector2.class);
         kryo.register(Array.class);
         kryo.register(Object[].class);
     }
 
+    /** Returns all connections currently open. Used for metrics. */
+    abstract Connection[] getConnections();
+
+    public NetworkMetrics getMetrics() {
+        return metrics;
+    }
+
     /** Will start the interface along with a discovery thread.
      * @return Success of starting the interface and establishing a connection. */
     public abstract boolean start();
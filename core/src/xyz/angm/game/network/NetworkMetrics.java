@@ -0,0 +1,211 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.esotericsoftware.kryonet.Connection;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/** Records network traffic of a {@link NetworkInterface}: messages, bytes and serialization time per message type and direction,
+ * as well as round trip time and write buffer occupancy per connection.
+ * Call {@link #sample()} to obtain rates since the last sample, or {@link #startDumping(FileHandle)} to
+ * periodically log them and append them to CSV files. */
+public class NetworkMetrics {
+
+    /** The interval at which metrics are dumped, in seconds. */
+    private static final int DUMP_INTERVAL = 5;
+    /** The header of 'messages.csv', written when the file is created. */
+    private static final String MESSAGES_HEADER = "time,type,messagesSentPerSecond,bytesSentPerSecond,"
+            + "messagesReceivedPerSecond,bytesReceivedPerSecond,averageWriteMicros,averageReadMicros\n";
+    /** The header of 'connections.csv', written when the file is created. */
+    private static final String CONNECTIONS_HEADER = "time,connection,returnTripTime,writeBufferBytes\n";
+
+    private final Map<Class<?>, TypeCounters> counters = new ConcurrentHashMap<>();
+    private final Supplier<Connection[]> connections;
+    private ScheduledExecutorService dumpScheduler;
+    private long lastSampleTime = TimeUtils.nanoTime();
+
+    /** Create new metrics.
+     * @param connections Supplies all connections currently open. */
+    NetworkMetrics(Supplier<Connection[]> connections) {
+        this.connections = connections;
+    }
+
+    /** Record an object written to a connection. */
+    void recordWritten(Class<?> type, int bytes, long nanos) {
+        TypeCounters typeCounters = counters.computeIfAbsent(type, TypeCounters::new);
+        typeCounters.messagesSent.incrementAndGet();
+        typeCounters.bytesSent.addAndGet(bytes);
+        typeCounters.writeNanos.addAndGet(nanos);
+    }
+
+    /** Record an object encoded once for sending to multiple connections. Its writes are recorded separately;
+     * the time is added to the write time of the type. */
+    void recordEncoded(Class<?> type, long nanos) {
+        counters.computeIfAbsent(type, TypeCounters::new).writeNanos.addAndGet(nanos);
+    }
+
+    /** Record an object read from a connection. */
+    void recordRead(Class<?> type, int bytes, long nanos) {
+        TypeCounters typeCounters = counters.computeIfAbsent(type, TypeCounters::new);
+        typeCounters.messagesReceived.incrementAndGet();
+        typeCounters.bytesReceived.addAndGet(bytes);
+        typeCounters.readNanos.addAndGet(nanos);
+    }
+
+    /** Takes a sample of all metrics. Rates are calculated over the time since the last call.
+     * @return The sample. */
+    public synchronized Sample sample() {
+        long now = TimeUtils.nanoTime();
+        float seconds = Math.max(1, now - lastSampleTime) / 1e9f;
+        lastSampleTime = now;
+
+        Array<TypeStats> types = new Array<>(false, counters.size(), TypeStats.class);
+        counters.values().forEach(typeCounters -> types.add(typeCounters.sample(seconds)));
+
+        Connection[] open = connections.get();
+        Array<ConnectionStats> connectionStats = new Array<>(false, open.length, ConnectionStats.class);
+        for (Connection connection : open) connectionStats.add(new ConnectionStats(connection));
+
+        return new Sample(types, connectionStats);
+    }
+
+    /** Starts dumping metrics every DUMP_INTERVAL seconds: a summary to the log, and all values to
+     * 'messages.csv' and 'connections.csv' in the given directory.
+     * @param directory The directory to write CSV files to. */
+    public synchronized void startDumping(FileHandle directory) {
+        if (dumpScheduler != null) return;
+        dumpScheduler = Executors.newSingleThreadScheduledExecutor();
+        dumpScheduler.scheduleAtFixedRate(() -> dump(directory), DUMP_INTERVAL, DUMP_INTERVAL, TimeUnit.SECONDS);
+    }
+
+    /** Stops dumping metrics, if it was started. */
+    public synchronized void dispose() {
+        if (dumpScheduler != null) dumpScheduler.shutdown();
+        dumpScheduler = null;
+    }
+
+    private void dump(FileHandle directory) {
+        Sample sample = sample();
+        long time = TimeUtils.millis();
+        StringBuilder messages = new StringBuilder();
+        StringBuilder connections = new StringBuilder();
+        float bytesSent = 0;
+        float bytesReceived = 0;
+
+        for (TypeStats type : sample.types) {
+            bytesSent += type.bytesSentPerSecond;
+            bytesReceived += type.bytesReceivedPerSecond;
+            messages.append(time).append(',').append(type.type).append(',')
+                    .append(type.messagesSentPerSecond).append(',').append(type.bytesSentPerSecond).append(',')
+                    .append(type.messagesReceivedPerSecond).append(',').append(type.bytesReceivedPerSecond).append(',')
+                    .append(type.averageWriteMicros).append(',').append(type.averageReadMicros).append('\n');
+        }
+        for (ConnectionStats connection : sample.connections) {
+            connections.append(time).append(',').append(connection.id).append(',')
+                    .append(connection.returnTripTime).append(',').append(connection.writeBufferBytes).append('\n');
+        }
+
+        append(directory.child("messages.csv"), MESSAGES_HEADER, messages);
+        append(directory.child("connections.csv"), CONNECTIONS_HEADER, connections);
+        Gdx.app.log("Network", String.format("Sending %.0f B/s, receiving %.0f B/s, %d connections",
+                bytesSent, bytesReceived, sample.connections.size));
+    }
+
+    // Appends rows to a CSV file, writing the header first if the file does not exist yet
+    private static void append(FileHandle file, String header, StringBuilder rows) {
+        if (!file.exists()) file.writeString(header, false);
+        file.writeString(rows.toString(), true);
+    }
+
+    /** A sample of all metrics. */
+    public static class Sample {
+        /** Stats of all message types sent or received so far. */
+        public final Array<TypeStats> types;
+        /** Stats of all connections currently open. */
+        public final Array<ConnectionStats> connections;
+
+        private Sample(Array<TypeStats> types, Array<ConnectionStats> connections) {
+            this.types = types;
+            this.connections = connections;
+        }
+    }
+
+    /** Rates of a single message type since the last sample. */
+    public static class TypeStats {
+        /** The simple class name of the message type. */
+        public final String type;
+        public final float messagesSentPerSecond;
+        public final float bytesSentPerSecond;
+        public final float messagesReceivedPerSecond;
+        public final float bytesReceivedPerSecond;
+        /** The average time it took to serialize a message sent, in microseconds. Includes encoding once for multiple connections. */
+        public final float averageWriteMicros;
+        /** The average time it took to deserialize a message received, in microseconds. */
+        public final float averageReadMicros;
+
+        private TypeStats(String type, float messagesSentPerSecond, float bytesSentPerSecond, float messagesReceivedPerSecond,
+                          float bytesReceivedPerSecond, float averageWriteMicros, float averageReadMicros) {
+            this.type = type;
+            this.messagesSentPerSecond = messagesSentPerSecond;
+            this.bytesSentPerSecond = bytesSentPerSecond;
+            this.messagesReceivedPerSecond = messagesReceivedPerSecond;
+            this.bytesReceivedPerSecond = bytesReceivedPerSecond;
+            this.averageWriteMicros = averageWriteMicros;
+            this.averageReadMicros = averageReadMicros;
+        }
+    }
+
+    /** The state of a single connection at the time of the sample. */
+    public static class ConnectionStats {
+        /** The kryonet ID of the connection. */
+        public final int id;
+        /** The last measured round trip time in ms; -1 if never measured. */
+        public final int returnTripTime;
+        /** The amount of bytes pending in the write buffer. */
+        public final int writeBufferBytes;
+
+        private ConnectionStats(Connection connection) {
+            id = connection.getID();
+            returnTripTime = connection.getReturnTripTime();
+            writeBufferBytes = connection.getTcpWriteBufferSize();
+        }
+    }
+
+    // Running totals of a single message type
+    private static class TypeCounters {
+        private final String type;
+        private final AtomicLong messagesSent = new AtomicLong();
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicLong messagesReceived = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final AtomicLong writeNanos = new AtomicLong();
+        private final AtomicLong readNanos = new AtomicLong();
+        // Totals at the time of the last sample; only accessed while sampling
+        private final long[] lastTotals = new long[6];
+
+        private TypeCounters(Class<?> type) {
+            this.type = type.getSimpleName();
+        }
+
+        private TypeStats sample(float seconds) {
+            long[] totals = {messagesSent.get(), bytesSent.get(), messagesReceived.get(), bytesReceived.get(), writeNanos.get(), readNanos.get()};
+            long[] delta = new long[totals.length];
+            for (int i = 0; i < totals.length; i++) delta[i] = totals[i] - lastTotals[i];
+            System.arraycopy(totals, 0, lastTotals, 0, totals.length);
+
+            float averageWriteMicros = (delta[0] == 0) ? 0 : (delta[4] / 1000f) / delta[0];
+            float averageReadMicros = (delta[2] == 0) ? 0 : (delta[5] / 1000f) / delta[2];
+            return new TypeStats(type, delta[0] / seconds, delta[1] / seconds, delta[2] / seconds, delta[3] / seconds,
+                    averageWriteMicros, averageReadMicros);
+        }
+    }
+}
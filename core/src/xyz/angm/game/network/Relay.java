@@ -0,0 +1,212 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.esotericsoftware.kryonet.Connection;
+import com.esotericsoftware.kryonet.Listener;
+import xyz.angm.game.world.entities.Beast;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static xyz.angm.game.network.Client.Status;
+
+/** A relay between a server and any amount of spectators, used to spread large audiences over multiple machines.
+ * Connects to its upstream server like a regular client, and serves its own clients like a server would:
+ * Broadcasts from upstream are serialized once and rebroadcast to all of them, late joiners get their world state
+ * transfer from a state mirrored by the relay, and beast spawn requests are forwarded upstream after the
+ * relay's own rate limits were applied. Relays can be chained, as a relay looks like any other server to its clients. */
+public class Relay extends Server {
+
+    /** The average amount of beast spawns forwarded upstream per second, across all clients. */
+    static final float RELAY_SPAWN_RATE = 10f;
+    /** The maximum burst of beast spawns forwarded upstream, across all clients. */
+    static final float RELAY_SPAWN_BURST = 10f;
+
+    private final com.esotericsoftware.kryonet.Client upstream = new com.esotericsoftware.kryonet.Client(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE, serialization);
+    private final InetSocketAddress upstreamAddress;
+    /** The mirrored state. Also used as the lock ordering upstream messages against new state transfers. */
+    private final RelayState state = new RelayState();
+    private final TokenBucket relaySpawnLimit = new TokenBucket(RELAY_SPAWN_RATE, RELAY_SPAWN_BURST);
+    /** Spawn requests forwarded upstream and not yet answered, by the request ID used upstream. Only accessed while holding its lock. */
+    private final IntMap<ForwardedSpawn> forwardedSpawns = new IntMap<>();
+    private int nextRequestId = 0;
+    /** The latest snapshot received from upstream that was not yet sent to clients. */
+    private final AtomicReference<EntitySnapshot> latestSnapshot = new AtomicReference<>();
+    private volatile long seed;
+    private volatile boolean ready = false;
+
+    /** Create a new relay. It must be trusted by the upstream server for its spawn rate limit to apply.
+     * @param port The port to listen on for clients.
+     * @param upstreamAddress The address of the server (or relay) to relay.
+     * @param trustedRelays Addresses of relays chained to this one allowed the spawn rate limit of a relay. Not copied. */
+    public Relay(int port, InetSocketAddress upstreamAddress, ObjectSet<InetAddress> trustedRelays) {
+        super(port, () -> null, trustedRelays);
+        this.upstreamAddress = upstreamAddress;
+    }
+
+    @Override
+    public boolean start() {
+        if (!super.start()) return false; // Also registers all classes; both endpoints share the serialization
+
+        upstream.addListener(new Listener() {
+            @Override
+            public void received(Connection connection, Object object) {
+                upstreamReceived(object);
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                Gdx.app.log("Relay", "Lost connection to upstream server, closing.");
+                dispose();
+            }
+        });
+
+        try {
+            upstream.start();
+            upstream.connect(3000, upstreamAddress.getAddress(), upstreamAddress.getPort());
+        } catch (IOException e) {
+            Gdx.app.error("Relay", "Couldn't connect to upstream server at " + upstreamAddress + "!");
+            dispose();
+            return false;
+        }
+        return true;
+    }
+
+    // Mirror everything received from upstream, and forward broadcasts to all clients while holding the state lock;
+    // a state transfer started concurrently will thus either contain a change, or be followed by it
+    private void upstreamReceived(Object object) {
+        if (object instanceof Long) {
+            seed = (Long) object;
+            upstream.sendTCP(Status.RELAY);
+            upstream.sendTCP(Status.STATE_REQUEST);
+        } else if (object instanceof EntitySnapshot) {
+            latestSnapshot.set((EntitySnapshot) object); // Sent by our own schedulers, older ones are superseded
+        } else if (object instanceof SpawnConfirmation) {
+            SpawnConfirmation confirmation = (SpawnConfirmation) object;
+            ForwardedSpawn spawn = spawnAnswered(confirmation.getRequestId());
+            if (spawn != null) spawn.connection.sendTCP(new SpawnConfirmation(spawn.requestId, confirmation.getBeastId()));
+        } else if (object instanceof SpawnRejection) {
+            SpawnRejection rejection = (SpawnRejection) object;
+            ForwardedSpawn spawn = spawnAnswered(rejection.getRequestId());
+            if (spawn != null) rejectSpawn(spawn.connection, spawn.requestId, rejection.getReason());
+        } else synchronized (state) {
+            if (object instanceof WorldStateHeader) {
+                state.stateSyncStarted((WorldStateHeader) object);
+                setWaveActive(((WorldStateHeader) object).isWaveActive());
+            } else if (object instanceof WorldStateChunk) {
+                state.stateChunkReceived((WorldStateChunk) object);
+            } else if (object instanceof BlockEditBatch) {
+                state.applyEditBatch((BlockEditBatch) object);
+                send(object);
+            } else if (object instanceof BlockStateBatch) {
+                state.applyStateBatch((BlockStateBatch) object);
+                send(object);
+            } else if (object instanceof Beast) {
+                state.beastReceived((Beast) object);
+                send(object);
+            } else if (object == Status.WAVE_START || object == Status.WAVE_END) {
+                setWaveActive(object == Status.WAVE_START);
+                send(object);
+            }
+            ready = state.isSynced();
+        }
+    }
+
+    @Override
+    boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    long getSeed() {
+        return seed;
+    }
+
+    /** @return The highest write buffer occupancy of all clients; a relay's bottleneck is its bandwidth. */
+    @Override
+    float getLoad() {
+        int maxPending = 0;
+        for (Connection connection : super.getConnections()) maxPending = Math.max(maxPending, connection.getTcpWriteBufferSize());
+        return (float) maxPending / WRITE_BUFFER_SIZE;
+    }
+
+    /** Forwards the request upstream, if the relay as a whole is within its rate limit.
+     * Admission control is left to the upstream server, which knows the state of the simulation.
+     * Request IDs are only unique per client; the request is forwarded with an ID of the relay, and mapped back once answered. */
+    @Override
+    void spawnRequested(Connection connection, SpawnRequest request) {
+        if (!relaySpawnLimit.tryConsume()) {
+            rejectSpawn(connection, request.getRequestId(), SpawnRejection.Reason.SERVER_BUSY);
+            return;
+        }
+        int requestId;
+        synchronized (forwardedSpawns) {
+            requestId = nextRequestId++;
+            forwardedSpawns.put(requestId, new ForwardedSpawn(connection, request.getRequestId()));
+        }
+        upstream.sendTCP(new SpawnRequest(requestId, request.getPosition()));
+    }
+
+    // Returns the forwarded spawn with the given upstream request ID and forgets it; null if unknown
+    private ForwardedSpawn spawnAnswered(int requestId) {
+        synchronized (forwardedSpawns) {
+            return forwardedSpawns.remove(requestId);
+        }
+    }
+
+    @Override
+    void stateRequested(Connection connection) {
+        synchronized (state) {
+            addStateStream(new WorldStateStream(connection, state.getBlockRecords(), state.getBeasts(), isWaveActive()));
+        }
+    }
+
+    /** @return The latest snapshot received from upstream, or null if it was already sent. */
+    @Override
+    EntitySnapshot takeSnapshot() {
+        return latestSnapshot.getAndSet(null);
+    }
+
+    @Override
+    void snapshotSent(EntitySnapshot snapshot) {
+        // Received from upstream, not pooled
+    }
+
+    @Override
+    void scheduleWaves() {
+        // Waves are started by the upstream server
+    }
+
+    /** Returns all connections, including the one to upstream. Used for metrics. */
+    @Override
+    Connection[] getConnections() {
+        Connection[] clients = super.getConnections();
+        if (!upstream.isConnected()) return clients;
+        Connection[] all = new Connection[clients.length + 1];
+        System.arraycopy(clients, 0, all, 0, clients.length);
+        all[clients.length] = upstream;
+        return all;
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+        upstream.close();
+    }
+
+    /** A spawn request of a client forwarded upstream. */
+    private static class ForwardedSpawn {
+
+        private final Connection connection;
+        private final int requestId;
+
+        private ForwardedSpawn(Connection connection, int requestId) {
+            this.connection = connection;
+            this.requestId = requestId;
+        }
+    }
+}
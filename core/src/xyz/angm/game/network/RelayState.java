@@ -0,0 +1,127 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import xyz.angm.game.world.TileVector;
+import xyz.angm.game.world.blocks.Block;
+import xyz.angm.game.world.entities.Beast;
+
+/** The state of a world as seen by a {@link Relay}, mirrored from the messages of its upstream server.
+ * Only keeps what is needed to serve world state transfers to the relay's own clients; there is no simulation.
+ * Not thread-safe. */
+class RelayState {
+
+    private final ObjectMap<TileVector, Block> blocks = new ObjectMap<>();
+    private final Array<Beast> beasts = new Array<>(true, 16, Beast.class);
+    /** Tiles edited by live updates while the upstream state transfer is in progress. State chunks must not overwrite these. */
+    private final ObjectSet<TileVector> syncEditedTiles = new ObjectSet<>();
+    /** The amount of blocks in the upstream state transfer; -1 until its header was received. */
+    private int syncBlocksTotal = -1;
+    private int syncBlocksReceived = 0;
+    /** Block state records received while the upstream state transfer is in progress; applied once it is done. */
+    private final IntArray syncPendingStates = new IntArray();
+
+    /** Call when the upstream server started transferring its world state.
+     * @param header The header of the transfer. */
+    void stateSyncStarted(WorldStateHeader header) {
+        beasts.clear();
+        beasts.addAll(header.getBeasts());
+        syncEditedTiles.clear();
+        syncPendingStates.clear();
+        syncBlocksTotal = header.getBlockCount();
+        syncBlocksReceived = 0;
+    }
+
+    /** Call when a chunk of the upstream world state was received.
+     * @param chunk The chunk received. */
+    void stateChunkReceived(WorldStateChunk chunk) {
+        for (int i = 0; i < chunk.getBlockCount(); i++) {
+            Block block = chunk.createBlock(i);
+            if (!syncEditedTiles.contains(block.getPosition())) blocks.put(block.getPosition(), block);
+        }
+        syncBlocksReceived += chunk.getBlockCount();
+        if (isSynced()) {
+            syncEditedTiles.clear();
+            applyBlockStates(syncPendingStates.items, syncPendingStates.size);
+            syncPendingStates.clear();
+        }
+    }
+
+    /** @return If the upstream world state transfer is complete. */
+    boolean isSynced() {
+        return syncBlocksTotal != -1 && syncBlocksReceived >= syncBlocksTotal;
+    }
+
+    /** Call when a batch of block edits was received from upstream. Removals are applied before placements.
+     * @param batch The batch to apply. */
+    void applyEditBatch(BlockEditBatch batch) {
+        int[] removed = batch.getRemoved();
+        for (int i = 0; i < removed.length; i += BlockEditBatch.REMOVED_RUN_SIZE) {
+            for (int x = removed[i]; x < removed[i] + removed[i + 2]; x++) {
+                TileVector position = new TileVector().set(x, removed[i + 1]);
+                tileEdited(position);
+                blocks.remove(position);
+            }
+        }
+
+        int[] placed = batch.getPlaced();
+        for (int i = 0; i < placed.length; i += BlockEditBatch.PLACED_RUN_SIZE) {
+            Block.Direction direction = Block.Direction.values()[placed[i + 4]];
+            for (int x = placed[i]; x < placed[i] + placed[i + 2]; x++) {
+                Block block = new Block(new TileVector().set(x, placed[i + 1]), placed[i + 3], direction);
+                tileEdited(block.getPosition());
+                blocks.put(block.getPosition(), block);
+            }
+        }
+    }
+
+    /** Call when a batch of block state changes was received from upstream.
+     * Deferred until the upstream state transfer is done, as its chunks carry older state.
+     * @param batch The batch to apply. */
+    void applyStateBatch(BlockStateBatch batch) {
+        if (isSynced()) applyBlockStates(batch.getRecords(), batch.getRecords().length);
+        else syncPendingStates.addAll(batch.getRecords());
+    }
+
+    private void applyBlockStates(int[] records, int length) {
+        TileVector position = new TileVector();
+        for (int i = 0; i < length; i += BlockStateBatch.RECORD_SIZE) {
+            Block block = blocks.get(position.set(records[i], records[i + 1]));
+            if (block != null) block.setField(records[i + 2], records[i + 3]);
+        }
+    }
+
+    /** Call when a beast was received from upstream. Dead beasts are removed, all others added.
+     * @param beast The beast received. */
+    void beastReceived(Beast beast) {
+        if (beast.getHealth() > 0) {
+            beasts.add(beast);
+            return;
+        }
+        for (int i = 0; i < beasts.size; i++) {
+            if (beasts.get(i).getId() == beast.getId()) {
+                beasts.removeIndex(i);
+                return;
+            }
+        }
+    }
+
+    /** @return The records of all blocks, for a world state transfer. See {@link WorldStateChunk#RECORD_SIZE}. */
+    int[] getBlockRecords() {
+        int[] records = new int[blocks.size * WorldStateChunk.RECORD_SIZE];
+        int index = 0;
+        for (Block block : blocks.values()) WorldStateChunk.writeRecord(records, index++, block);
+        return records;
+    }
+
+    /** @return A copy of all beasts alive, for a world state transfer. */
+    Beast[] getBeasts() {
+        return beasts.toArray();
+    }
+
+    private void tileEdited(TileVector position) {
+        if (!isSynced()) syncEditedTiles.add(position);
+    }
+}
@@ -1,59 +1,197 @@
 package xyz.angm.game.network;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.esotericsoftware.kryonet.Connection;
 import com.esotericsoftware.kryonet.Listener;
 import xyz.angm.game.Defactory;
-import xyz.angm.game.ui.screens.GameScreen;
-import xyz.angm.game.ui.screens.MapLoadingScreen;
-import xyz.angm.game.world.TileVector;
+import xyz.angm.game.world.World;
+import xyz.angm.game.world.entities.Beast;
 
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static xyz.angm.game.network.Client.Status;
 
 /** A server capable of connecting to an unlimited amount of clients.
  * The player trying to defend themselves from beasts is the one hosting the server.
- * Automatically starts a server discovery thread for clients to find. */
+ * Registers itself with the process-wide {@link ServerDiscoveryRunnable} for clients to find.
+ * All access to the world goes through a few package-private hooks, which {@link Relay} overrides to serve a mirrored state instead. */
 public class Server extends NetworkInterface {
 
-    private final com.esotericsoftware.kryonet.Server kryoServer = new com.esotericsoftware.kryonet.Server();
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private final Defactory game;
+    /** The interval at which entity snapshots are sent to clients, in ms. Clients interpolate between them. */
+    private static final long ENTITY_UPDATE_INTERVAL = 100;
+    /** The average amount of beast spawns a single client may request per second. */
+    private static final float CLIENT_SPAWN_RATE = 1f;
+    /** The maximum burst of beast spawns a single client may request. */
+    private static final float CLIENT_SPAWN_BURST = 3f;
+
+    private final com.esotericsoftware.kryonet.Server kryoServer = new com.esotericsoftware.kryonet.Server(WRITE_BUFFER_SIZE, OBJECT_BUFFER_SIZE, serialization);
+    private final Array<ScheduledFuture<?>> tasks = new Array<>(false, 4);
+    private final int port;
+    private final Supplier<World> world;
+    /** Addresses of relays allowed to raise their spawn rate limit. Anyone can claim to be a relay, so the claim alone is not enough. */
+    private final ObjectSet<InetAddress> trustedRelays;
+    /** All world state transfers currently in progress. Only accessed while holding the server's lock. */
+    private final Array<WorldStateStream> stateStreams = new Array<>(false, 4);
+    /** Send schedulers of all connections, by connection ID. Only accessed while holding the server's lock. */
+    private final IntMap<ConnectionScheduler> connectionSchedulers = new IntMap<>();
+    /** Spawn rate limits of all connections, by connection ID. Only accessed while holding the server's lock. */
+    private final IntMap<TokenBucket> spawnLimits = new IntMap<>();
+    private final SpawnAdmissionController spawnAdmission = new SpawnAdmissionController();
+    private volatile boolean waveActive = false;
+
+    /** Create a new server on the default port.
+     * @param world Supplies the world to sync with clients; null while it is not ready yet.
+     * @param trustedRelays Addresses of relays allowed the spawn rate limit of a relay. Not copied. */
+    public Server(Supplier<World> world, ObjectSet<InetAddress> trustedRelays) {
+        this(PORT, world, trustedRelays);
+    }
 
     /** Create a new server.
-     * @param game The game to use for syncing with clients. */
-    public Server(Defactory game) {
-        this.game = game;
+     * @param port The port to listen on.
+     * @param world Supplies the world to sync with clients; null while it is not ready yet.
+     * @param trustedRelays Addresses of relays allowed the spawn rate limit of a relay. Not copied. */
+    Server(int port, Supplier<World> world, ObjectSet<InetAddress> trustedRelays) {
+        this.port = port;
+        this.world = world;
+        this.trustedRelays = trustedRelays;
     }
 
     @Override
     public boolean start() {
-        new Thread(new ServerDiscoveryRunnable()).start();
-
         try {
             kryoServer.start();
-            registerClasses(kryoServer.getKryo());
-            kryoServer.bind(PORT);
+            registerClasses(serialization.getKryo());
+            kryoServer.bind(port);
             setupListeners();
+            scheduleTasks();
         } catch (IOException e) {
             Gdx.app.error("Server", "Could not open port! Game already running?", e);
             return false;
         }
+        ServerDiscoveryRunnable.register(this);
         return true;
     }
 
+    /** Sends an object to all clients. It is only serialized once, no matter the amount of clients,
+     * Objects larger than the object buffer size can not be read by clients, and are dropped with an error instead;
+     * large messages need to be split by their sender, like block edit batches are. */
     @Override
     public void send(Object toSend) {
-        kryoServer.sendToAllTCP(toSend);
+        EncodedMessage message = serialization.encode(toSend);
+        if (message == null) {
+            Gdx.app.error("Server", "Dropped broadcast " + toSend.getClass().getSimpleName() + ", it exceeds the object buffer size.");
+            return;
+        }
+        for (Connection connection : kryoServer.getConnections()) connection.sendTCP(message);
+        message.free();
+    }
+
+    /** Writes the response to a discovery request. Called from the discovery thread.
+     * @param buffer The buffer to write the response into.
+     * @return If the server is ready for clients; no response should be sent if not. */
+    boolean writeDiscoveryResponse(ByteBuffer buffer) {
+        if (!isReady()) return false;
+        DiscoveredServer.writeResponse(buffer, port, getSeed(), kryoServer.getConnections().length, getLoad());
+        return true;
+    }
+
+    /** @return If the server has a world to sync to clients. Clients connecting before are dropped. */
+    boolean isReady() {
+        return world.get() != null;
+    }
+
+    /** @return The seed of the world. Only valid once ready. */
+    long getSeed() {
+        return world.get().seed;
+    }
+
+    /** @return The load of the server for discovery responses; 0 is idle, above 1 is overloaded. Only valid once ready. */
+    float getLoad() {
+        return world.get().getLoad();
+    }
+
+    /** Called from the network thread when a client requested a beast spawn, after it passed the client's rate limit.
+     * Every request must be answered with either a confirmation or a rejection.
+     * @param connection The connection of the client.
+     * @param request The request. */
+    void spawnRequested(Connection connection, SpawnRequest request) {
+        World current = world.get();
+        if (current == null) return;
+        current.postRunnable(() -> {
+            SpawnRejection.Reason rejection = spawnAdmission.admit(current);
+            if (rejection != null) {
+                rejectSpawn(connection, request.getRequestId(), rejection);
+                return;
+            }
+            Beast beast = current.spawnBeast(request.getPosition());
+            connection.sendTCP(new SpawnConfirmation(request.getRequestId(), beast.getId()));
+        });
+    }
+
+    /** Tells a client its beast spawn request was rejected.
+     * @param connection The connection of the client.
+     * @param requestId The ID of the request.
+     * @param reason The reason for the rejection. */
+    void rejectSpawn(Connection connection, int requestId, SpawnRejection.Reason reason) {
+        connection.sendTCP(new SpawnRejection(requestId, reason));
+    }
+
+    /** Called from the network thread when a client requested the world state.
+     * Implementations must make sure that the state is consistent with everything sent after the stream's header.
+     * @param connection The connection of the client. */
+    void stateRequested(Connection connection) {
+        World current = world.get();
+        if (current == null) return;
+        // The blocks are copied during the world's next tick; edits broadcast afterwards will arrive after the header.
+        // The stream then only sends those copies from the network thread, never reading the world itself
+        current.postRunnable(() -> addStateStream(new WorldStateStream(connection, current, waveActive)));
+    }
+
+    /** Takes the entity snapshot to send to clients this tick. Called from a network thread.
+     * @return The snapshot, or null if there is none. */
+    EntitySnapshot takeSnapshot() {
+        World current = world.get();
+        return current == null ? null : current.getSnapshotPublisher().take();
+    }
+
+    /** Called once a snapshot returned by {@link #takeSnapshot()} was serialized and is no longer needed.
+     * @param snapshot The snapshot. */
+    void snapshotSent(EntitySnapshot snapshot) {
+        World current = world.get();
+        if (current != null) current.getSnapshotPublisher().free(snapshot);
+    }
+
+    /** @return If a wave of beasts is currently active. */
+    boolean isWaveActive() {
+        return waveActive;
+    }
+
+    /** Sets the wave status sent to clients joining later.
+     * @param waveActive If a wave of beasts is currently active. */
+    void setWaveActive(boolean waveActive) {
+        this.waveActive = waveActive;
+    }
+
+    @Override
+    Connection[] getConnections() {
+        return kryoServer.getConnections();
     }
 
     @Override
     public void dispose() {
+        ServerDiscoveryRunnable.unregister(this);
+        tasks.forEach(task -> task.cancel(false));
         kryoServer.close();
+        metrics.dispose();
     }
 
     // Setup all required listeners
@@ -61,39 +199,116 @@ public class Server extends NetworkInterface {
         kryoServer.addListener(new Listener() {
             @Override
             public void connected(Connection connection) {
-                if (game.getScreen() instanceof MapLoadingScreen) connection.close(); // Not ready yet!
+                if (!isReady()) {
+                    connection.close();
+                    return;
+                }
+                addConnection(connection);
 
                 // Sync world seed to client
-                connection.sendTCP(((GameScreen) game.getScreen()).getWorld().seed);
+                connection.sendTCP(getSeed());
+            }
+
+            @Override
+            public void disconnected(Connection connection) {
+                removeConnection(connection);
             }
 
             @Override
             public void received(Connection connection, Object object) {
-                if (object instanceof TileVector) {
-                    ((GameScreen) game.getScreen()).getWorld().spawnBeast((TileVector) object);
+                if (!isReady()) return;
+
+                if (object instanceof SpawnRequest) {
+                    SpawnRequest request = (SpawnRequest) object;
+                    if (takeSpawnToken(connection)) spawnRequested(connection, request);
+                    else rejectSpawn(connection, request.getRequestId(), SpawnRejection.Reason.RATE_LIMITED);
                 }
+                else if (object == Status.STATE_REQUEST) stateRequested(connection);
+                else if (object == Status.RELAY) relayConnected(connection);
             }
         });
+    }
+
+    // Schedule all periodic tasks; they are cancelled on dispose
+    private void scheduleTasks() {
+        tasks.add(Defactory.executor.scheduleAtFixedRate(
+                this::updateClientsEntities, ENTITY_UPDATE_INTERVAL, ENTITY_UPDATE_INTERVAL, TimeUnit.MILLISECONDS));
+        tasks.add(Defactory.executor.scheduleAtFixedRate(this::continueStateStreams, 10, 10, TimeUnit.MILLISECONDS));
+        scheduleWaves();
+    }
+
+    /** Schedules the beast waves. Separate from the other tasks, as relays take their waves from upstream. */
+    void scheduleWaves() {
+        tasks.add(Defactory.executor.scheduleAtFixedRate(this::startWave, 180, 90, TimeUnit.MINUTES));
+        tasks.add(Defactory.executor.scheduleAtFixedRate(this::endWave, 210, 90, TimeUnit.MINUTES));
+    }
+
+    private synchronized void addConnection(Connection connection) {
+        connectionSchedulers.put(connection.getID(), new ConnectionScheduler(connection));
+        spawnLimits.put(connection.getID(), new TokenBucket(CLIENT_SPAWN_RATE, CLIENT_SPAWN_BURST));
+    }
+
+    private synchronized void removeConnection(Connection connection) {
+        connectionSchedulers.remove(connection.getID());
+        spawnLimits.remove(connection.getID());
+    }
+
+    // Raises the spawn rate limit of a connection to the one relays apply to all of their clients together,
+    // if it comes from a trusted relay; a modified client could otherwise bypass its limit by claiming to be one
+    private synchronized void relayConnected(Connection connection) {
+        InetSocketAddress address = connection.getRemoteAddressTCP();
+        if (address == null || !trustedRelays.contains(address.getAddress())) {
+            Gdx.app.log("Server", "Untrusted relay at " + address + " keeps the spawn rate limit of a client.");
+            return;
+        }
+        if (spawnLimits.containsKey(connection.getID())) {
+            spawnLimits.put(connection.getID(), new TokenBucket(Relay.RELAY_SPAWN_RATE, Relay.RELAY_SPAWN_BURST));
+        }
+    }
+
+    // Returns if the connection is within its spawn rate limit, taking a token if so
+    private synchronized boolean takeSpawnToken(Connection connection) {
+        TokenBucket limit = spawnLimits.get(connection.getID());
+        return limit != null && limit.tryConsume();
+    }
 
-        scheduler.scheduleAtFixedRate(this::updateClientsEntities, 50, 50, TimeUnit.MILLISECONDS);
-        scheduler.scheduleAtFixedRate(this::startWave, 180, 90, TimeUnit.MINUTES);
-        scheduler.scheduleAtFixedRate(this::endWave, 210, 90, TimeUnit.MINUTES);
+    /** Adds a world state transfer to be continued until done.
+     * @param stream The stream; its header should already be sent. */
+    synchronized void addStateStream(WorldStateStream stream) {
+        stateStreams.add(stream);
+    }
+
+    // Update entities on all clients connected to this server; each connection decides if it can take the update
+    private synchronized void updateClientsEntities() {
+        EntitySnapshot state = takeSnapshot();
+        if (state == null) return;
+        EncodedMessage snapshot = serialization.encode(state);
+        snapshotSent(state);
+        if (snapshot == null) { // Clients could not read it; dropped like any other snapshot a connection can't take
+            Gdx.app.error("Server", "Dropped entity snapshot, it exceeds the object buffer size.");
+            return;
+        }
+        for (ConnectionScheduler connectionScheduler : connectionSchedulers.values()) connectionScheduler.tick(snapshot);
+        snapshot.free();
     }
 
-    // Update entities on all clients connected to this server
-    private void updateClientsEntities() {
-        if (game.getScreen() instanceof GameScreen) {
-            send(((GameScreen) game.getScreen()).getWorld().getPlayer());
-            send(((GameScreen) game.getScreen()).getWorld().getBeastPositions());
+    // Send the next chunks of all world state transfers; remove them once done
+    private synchronized void continueStateStreams() {
+        for (int i = stateStreams.size - 1; i >= 0; i--) {
+            if (stateStreams.get(i).continueSending()) stateStreams.removeIndex(i);
         }
     }
 
     private void startWave() {
-        ((GameScreen) game.getScreen()).waveBegun();
+        World current = world.get();
+        if (current == null) return;
+        current.postRunnable(() -> current.getPlayer().nextWave());
+        setWaveActive(true);
         send(Status.WAVE_START);
     }
 
     private void endWave() {
+        setWaveActive(false);
         send(Status.WAVE_END);
     }
 }
@@ -0,0 +1,113 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.Gdx;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InterfaceAddress;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/** Searches the local network on all network interfaces for servers running a {@link ServerDiscoveryRunnable}.
+ * Responses are collected until the search time ran out; {@link #awaitFirst(long)} returns as soon as the first one arrived. */
+class ServerDiscovery implements Runnable {
+
+    private final int searchTime;
+    private final List<DiscoveredServer> servers = new CopyOnWriteArrayList<>();
+    private final CountDownLatch firstResponse = new CountDownLatch(1);
+    private final byte[] receiveBuffer = new byte[DiscoveredServer.RESPONSE_SIZE + 1];
+
+    /** Create a new discovery. Start it by running it in a new thread.
+     * @param searchTime The time to search for servers, in ms. */
+    ServerDiscovery(int searchTime) {
+        this.searchTime = searchTime;
+    }
+
+    /** Waits until the first server responded, or the timeout elapsed.
+     * @param timeout The maximum time to wait, in ms.
+     * @return The least loaded server found so far, or null if none responded. */
+    DiscoveredServer awaitFirst(long timeout) {
+        try {
+            firstResponse.await(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        DiscoveredServer best = null;
+        for (DiscoveredServer server : servers) {
+            if (best == null || server.getLoad() < best.getLoad()) best = server;
+        }
+        return best;
+    }
+
+    /** @return All servers found so far. Keeps growing until the search time ran out. */
+    List<DiscoveredServer> getServers() {
+        return Collections.unmodifiableList(servers);
+    }
+
+    @Override
+    public void run() {
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setBroadcast(true);
+            broadcast(socket);
+
+            // Collect responses until the search time ran out
+            DatagramPacket receivePacket = new DatagramPacket(receiveBuffer, receiveBuffer.length);
+            long deadline = System.currentTimeMillis() + searchTime;
+            long timeLeft;
+            while ((timeLeft = deadline - System.currentTimeMillis()) > 0) {
+                socket.setSoTimeout((int) timeLeft);
+                receivePacket.setLength(receiveBuffer.length);
+                try {
+                    socket.receive(receivePacket);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+                serverResponded(receivePacket);
+            }
+        } catch (Exception e) {
+            Gdx.app.error("Client", "Could not search for servers. Reporting none found.");
+        } finally {
+            firstResponse.countDown(); // Don't keep anyone waiting after the search is over
+        }
+    }
+
+    // Broadcast the request over all network interfaces
+    private static void broadcast(DatagramSocket socket) throws Exception {
+        byte[] sendData = DiscoveredServer.REQUEST;
+        DatagramPacket sendPacket = new DatagramPacket(sendData, sendData.length, InetAddress.getByName("255.255.255.255"), Client.PORT);
+        socket.send(sendPacket);
+
+        Enumeration<java.net.NetworkInterface> interfaces = java.net.NetworkInterface.getNetworkInterfaces();
+        while (interfaces.hasMoreElements()) {
+            java.net.NetworkInterface networkInterface = interfaces.nextElement();
+            if (networkInterface.isLoopback() || !networkInterface.isUp()) continue;
+
+            for (InterfaceAddress interfaceAddress : networkInterface.getInterfaceAddresses()) {
+                InetAddress broadcast = interfaceAddress.getBroadcast();
+                if (broadcast == null) continue;
+
+                sendPacket.setAddress(broadcast);
+                socket.send(sendPacket);
+            }
+        }
+    }
+
+    private void serverResponded(DatagramPacket packet) {
+        DiscoveredServer server = DiscoveredServer.readResponse(packet.getData(), packet.getLength(), packet.getAddress());
+        if (server == null || server.getProtocolVersion() != NetworkInterface.PROTOCOL_VERSION) return;
+
+        // The request is broadcast over multiple interfaces, so servers might respond more than once
+        for (DiscoveredServer known : servers) {
+            if (known.getAddress().equals(server.getAddress()) && known.getPort() == server.getPort()) return;
+        }
+        servers.add(server);
+        firstResponse.countDown();
+    }
+}
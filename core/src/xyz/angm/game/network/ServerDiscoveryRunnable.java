@@ -6,28 +6,59 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
-/** Waits for a {@link ClientDiscoveryRunnable} to ping it and gives a response for the client to find it. */
+/** Waits for a {@link ServerDiscovery} to ping it and gives a response for the client to find it.
+ * There is only one per process; it responds once for every registered server, so all sessions hosted can be found.
+ * The response contains metadata about the server, see {@link DiscoveredServer}. */
 class ServerDiscoveryRunnable implements Runnable {
 
+    private static final List<Server> servers = new CopyOnWriteArrayList<>();
+    private static Thread thread;
+
+    /** Registers a server to respond for. Starts the discovery thread if it is not running yet.
+     * @param server The server to register. */
+    static synchronized void register(Server server) {
+        servers.add(server);
+        if (thread == null || !thread.isAlive()) {
+            thread = new Thread(new ServerDiscoveryRunnable(), "Server discovery");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /** Unregisters a server; it will no longer be found by clients.
+     * @param server The server to unregister. */
+    static void unregister(Server server) {
+        servers.remove(server);
+    }
+
+    private ServerDiscoveryRunnable() {}
+
     @SuppressWarnings("InfiniteLoopStatement") // Intended; runnable should run indefinitely
     @Override
     public void run() {
         try (DatagramSocket socket = new DatagramSocket(Client.PORT, InetAddress.getByName("0.0.0.0"))) {
             socket.setBroadcast(true);
 
+            // Buffers are reused for all packets
+            byte[] recvBuf = new byte[DiscoveredServer.REQUEST.length + 1];
+            DatagramPacket packet = new DatagramPacket(recvBuf, recvBuf.length);
+            ByteBuffer response = ByteBuffer.allocate(DiscoveredServer.RESPONSE_SIZE);
+            DatagramPacket sendPacket = new DatagramPacket(response.array(), response.capacity());
+
             while (true) {
                 // Receive a packet
-                byte[] recvBuf = new byte[15000];
-                DatagramPacket packet = new DatagramPacket(recvBuf, recvBuf.length);
+                packet.setLength(recvBuf.length);
                 socket.receive(packet);
+                if (!DiscoveredServer.isRequest(packet.getData(), packet.getLength())) continue;
 
-                // Check if the message is correct; send back a new packet
-                String message = new String(packet.getData()).trim();
-                if (message.equals("DISCOVER_GAME_REQUEST")) {
-                    byte[] sendData = "DISCOVER_GAME_RESPONSE".getBytes();
-                    DatagramPacket sendPacket = new DatagramPacket(sendData, sendData.length, packet.getAddress(), packet.getPort());
-                    socket.send(sendPacket);
+                // Send back a response for every server ready for clients
+                sendPacket.setSocketAddress(packet.getSocketAddress());
+                for (Server server : servers) {
+                    if (server.writeDiscoveryResponse(response)) socket.send(sendPacket);
                 }
             }
         } catch (IOException ex) {
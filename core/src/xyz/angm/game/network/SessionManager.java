@@ -0,0 +1,132 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ObjectSet;
+import xyz.angm.game.Defactory;
+import xyz.angm.game.world.TerrainGenerator;
+import xyz.angm.game.world.World;
+
+import java.net.InetAddress;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/** Hosts multiple independent games in this process, next to the local one.
+ * Every session has its own world and its own server, listening on its own port; clients find all of them through discovery.
+ * Sessions share the block registry, assets and {@link Defactory#executor}, which also runs their simulation.
+ * Sessions are simulated, but never rendered. */
+public class SessionManager implements Disposable {
+
+    /** The rate at which the worlds of sessions are simulated, in ticks per second. */
+    private static final int TICK_RATE = 60;
+
+    private final Array<Session> sessions = new Array<>(false, 4);
+    private final ObjectSet<InetAddress> trustedRelays;
+    private int nextPort = NetworkInterface.PORT + 1;
+
+    /** Create a new manager without any sessions.
+     * @param trustedRelays Addresses of relays allowed the spawn rate limit of a relay by all sessions. Not copied. */
+    public SessionManager(ObjectSet<InetAddress> trustedRelays) {
+        this.trustedRelays = trustedRelays;
+    }
+
+    /** Creates and starts a new session. The map is generated on the shared executor;
+     * the world is then created on the OpenGL thread and simulated on the shared executor.
+     * @param seed The seed to generate the world with.
+     * @return The new session, or null if its server could not be started. Its world becomes available once generation finished. */
+    public synchronized Session createSession(long seed) {
+        Session session = new Session(nextPort++, seed, trustedRelays);
+        if (!session.start()) {
+            session.dispose();
+            return null;
+        }
+        sessions.add(session);
+        return session;
+    }
+
+    /** Stops a session and disconnects all of its clients.
+     * @param session The session to close. */
+    public synchronized void closeSession(Session session) {
+        sessions.removeValue(session, true);
+        session.dispose();
+    }
+
+    /** Returns a copy of all sessions currently hosted. */
+    public synchronized Array<Session> getSessions() {
+        return new Array<>(sessions);
+    }
+
+    @Override
+    public synchronized void dispose() {
+        sessions.forEach(Session::dispose);
+        sessions.clear();
+    }
+
+    /** A single game hosted by the manager. */
+    public static class Session implements Disposable {
+
+        private final int port;
+        private final long seed;
+        private final Server server;
+        private volatile World world;
+        private volatile boolean disposed = false;
+        private ScheduledFuture<?> simulation;
+
+        private Session(int port, long seed, ObjectSet<InetAddress> trustedRelays) {
+            this.port = port;
+            this.seed = seed;
+            this.server = new Server(port, () -> world, trustedRelays);
+        }
+
+        // Start the server and begin generating the world. Returns false if the server could not be started
+        private boolean start() {
+            if (!server.start()) return false;
+
+            Defactory.executor.execute(() -> {
+                TerrainGenerator generator = new TerrainGenerator(seed);
+                generator.awaitDone();
+                if (disposed) return;
+
+                // Lighting and rendering components need to be created on the OpenGL thread
+                Gdx.app.postRunnable(() -> {
+                    if (disposed) return;
+                    World newWorld = new World(generator, server, true);
+                    simulation = Defactory.executor.scheduleAtFixedRate(
+                            () -> newWorld.act(1f / TICK_RATE), 0, 1_000_000 / TICK_RATE, TimeUnit.MICROSECONDS);
+                    world = newWorld;
+                });
+            });
+            return true;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /** Returns the world of the session, or null if it is still generating. */
+        public World getWorld() {
+            return world;
+        }
+
+        public int getPlayerCount() {
+            return server.getConnections().length;
+        }
+
+        @Override
+        public void dispose() {
+            disposed = true;
+            server.dispose();
+
+            // Lighting and rendering components need to be disposed on the OpenGL thread, after the simulation stopped
+            Gdx.app.postRunnable(() -> {
+                if (simulation != null) simulation.cancel(false);
+                if (world != null) world.dispose();
+            });
+        }
+    }
+}
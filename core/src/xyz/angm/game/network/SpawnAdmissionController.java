@@ -0,0 +1,23 @@
+package xyz.angm.game.network;
+
+import xyz.angm.game.world.World;
+
+/** Decides if a world can take another beast, regardless of who requested it.
+ * Protects the defender's frame rate: Beasts are expensive to simulate, and all spectators together
+ * could request far more than the world can handle, even when every single one of them stays within its rate limit. */
+class SpawnAdmissionController {
+
+    /** The load above which spawns are rejected, relative to the budget of a tick. See {@link World#getLoad()}. */
+    private static final float MAX_LOAD = 0.8f;
+    /** The maximum amount of beasts alive at once. */
+    private static final int MAX_BEASTS = 150;
+
+    /** Checks if a beast can be spawned. Only call on the thread acting the world.
+     * @param world The world to spawn the beast in.
+     * @return The reason the spawn has to be rejected, or null if it can go ahead. */
+    SpawnRejection.Reason admit(World world) {
+        if (world.getBeasts().size >= MAX_BEASTS) return SpawnRejection.Reason.TOO_MANY_BEASTS;
+        if (world.getLoad() > MAX_LOAD) return SpawnRejection.Reason.SERVER_BUSY;
+        return null;
+    }
+}
@@ -0,0 +1,27 @@
+package xyz.angm.game.network;
+
+/** Sent to a spectator once a beast it requested was spawned; after the beast itself was broadcast. */
+public class SpawnConfirmation {
+
+    private int requestId;
+    private int beastId;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private SpawnConfirmation() {}
+
+    /** Construct a new confirmation.
+     * @param requestId The ID of the request, see {@link SpawnRequest}.
+     * @param beastId The ID of the beast spawned. */
+    SpawnConfirmation(int requestId, int beastId) {
+        this.requestId = requestId;
+        this.beastId = beastId;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public int getBeastId() {
+        return beastId;
+    }
+}
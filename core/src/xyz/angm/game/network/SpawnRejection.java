@@ -0,0 +1,44 @@
+package xyz.angm.game.network;
+
+/** Sent to a client when a beast spawn it requested was rejected by the server (or a relay in between). */
+public class SpawnRejection {
+
+    private int requestId;
+    private Reason reason;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private SpawnRejection() {}
+
+    /** Construct a new rejection.
+     * @param requestId The ID of the request, see {@link SpawnRequest}.
+     * @param reason The reason the spawn was rejected. */
+    SpawnRejection(int requestId, Reason reason) {
+        this.requestId = requestId;
+        this.reason = reason;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    /** The reasons a spawn can be rejected for. */
+    public enum Reason {
+        /** The client requested spawns faster than allowed. */
+        RATE_LIMITED("hudSpawnRateLimited"),
+        /** The server's simulation is already over its time budget. */
+        SERVER_BUSY("hudSpawnServerBusy"),
+        /** The amount of beasts alive is at its limit. */
+        TOO_MANY_BEASTS("hudSpawnTooManyBeasts");
+
+        /** Name of the localization string explaining the rejection to the spectator. */
+        public final String localizationKey;
+
+        Reason(String localizationKey) {
+            this.localizationKey = localizationKey;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package xyz.angm.game.network;
+
+import xyz.angm.game.world.TileVector;
+
+/** Sent by a spectator to request a beast spawn. Answered with either a {@link SpawnConfirmation} or a {@link SpawnRejection}
+ * carrying the same request ID; the client shows a predicted beast until then. */
+public class SpawnRequest {
+
+    private int requestId;
+    private TileVector position;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private SpawnRequest() {}
+
+    /** Construct a new request.
+     * @param requestId The ID of the request; unique per client.
+     * @param position The position to spawn the beast at. */
+    public SpawnRequest(int requestId, TileVector position) {
+        this.requestId = requestId;
+        this.position = position;
+    }
+
+    public int getRequestId() {
+        return requestId;
+    }
+
+    public TileVector getPosition() {
+        return position;
+    }
+}
@@ -0,0 +1,32 @@
+package xyz.angm.game.network;
+
+/** A token bucket for rate limiting requests. Refills continuously at a fixed rate up to its capacity,
+ * allowing short bursts while limiting the average rate. Thread-safe. */
+class TokenBucket {
+
+    private final float tokensPerSecond;
+    private final float capacity;
+    private float tokens;
+    private long lastRefill = System.nanoTime();
+
+    /** Creates a new, full bucket.
+     * @param tokensPerSecond The rate at which tokens are refilled; the average amount of allowed requests per second.
+     * @param capacity The maximum amount of tokens; the largest allowed burst. */
+    TokenBucket(float tokensPerSecond, float capacity) {
+        this.tokensPerSecond = tokensPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+    }
+
+    /** Takes a token out of the bucket if one is available.
+     * @return If a token was available; the request should be rejected if not. */
+    synchronized boolean tryConsume() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + ((now - lastRefill) / 1e9f) * tokensPerSecond);
+        lastRefill = now;
+
+        if (tokens < 1f) return false;
+        tokens--;
+        return true;
+    }
+}
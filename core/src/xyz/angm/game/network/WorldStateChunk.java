@@ -0,0 +1,55 @@
+package xyz.angm.game.network;
+
+import xyz.angm.game.world.TileVector;
+import xyz.angm.game.world.blocks.Block;
+
+/** A part of the blocks sent to a client during a world state transfer. See {@link WorldStateStream}.
+ * Each block is a compact record copied from it on the thread owning it, instead of the block itself,
+ * so that chunks can be sent from any thread while the world keeps changing. */
+public class WorldStateChunk {
+
+    /** Length of a single record: x, y, type, direction ordinal, health, material amount. */
+    static final int RECORD_SIZE = 6;
+
+    private int[] records;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private WorldStateChunk() {}
+
+    /** Construct a new chunk.
+     * @param records The records of all blocks contained in this chunk, see {@link #RECORD_SIZE}. */
+    WorldStateChunk(int[] records) {
+        this.records = records;
+    }
+
+    /** Writes the record of a block. Must be called on the thread owning the block.
+     * @param records The records to write into.
+     * @param index The index of the block; the record is written at index * RECORD_SIZE.
+     * @param block The block to copy. */
+    static void writeRecord(int[] records, int index, Block block) {
+        int offset = index * RECORD_SIZE;
+        records[offset] = block.getPosition().getX();
+        records[offset + 1] = block.getPosition().getY();
+        records[offset + 2] = block.getProperties().id;
+        records[offset + 3] = block.getDirection().ordinal();
+        records[offset + 4] = block.getField(Block.FIELD_HEALTH);
+        records[offset + 5] = block.getField(Block.FIELD_MATERIAL);
+    }
+
+    /** @return The amount of blocks in this chunk. */
+    public int getBlockCount() {
+        return records.length / RECORD_SIZE;
+    }
+
+    /** Creates a block from its record.
+     * @param index The index of the block in this chunk.
+     * @return A new block with the state of the record. */
+    public Block createBlock(int index) {
+        int offset = index * RECORD_SIZE;
+        TileVector position = new TileVector().set(records[offset], records[offset + 1]);
+        Block block = new Block(position, records[offset + 2], Block.Direction.values()[records[offset + 3]]);
+        block.setField(Block.FIELD_HEALTH, records[offset + 4]);
+        block.setField(Block.FIELD_MATERIAL, records[offset + 5]);
+        return block;
+    }
+}
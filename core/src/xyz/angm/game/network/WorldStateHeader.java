@@ -0,0 +1,37 @@
+package xyz.angm.game.network;
+
+import xyz.angm.game.world.entities.Beast;
+
+/** Sent to a client once it requested the world state; precedes all {@link WorldStateChunk}s of the transfer.
+ * Contains everything that needs to be in sync right away; blocks follow in chunks. */
+public class WorldStateHeader {
+
+    private int blockCount;
+    private Beast[] beasts;
+    private boolean waveActive;
+
+    /** Required for kryo deserialization; needs a no-arg constructor. */
+    private WorldStateHeader() {}
+
+    /** Construct a new header.
+     * @param blockCount The amount of blocks that will follow in chunks.
+     * @param beasts All beasts currently alive, in the same order as beast position updates.
+     * @param waveActive If a wave of beasts is currently active. */
+    WorldStateHeader(int blockCount, Beast[] beasts, boolean waveActive) {
+        this.blockCount = blockCount;
+        this.beasts = beasts;
+        this.waveActive = waveActive;
+    }
+
+    public int getBlockCount() {
+        return blockCount;
+    }
+
+    public Beast[] getBeasts() {
+        return beasts;
+    }
+
+    public boolean isWaveActive() {
+        return waveActive;
+    }
+}
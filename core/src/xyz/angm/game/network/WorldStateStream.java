@@ -0,0 +1,71 @@
+package xyz.angm.game.network;
+
+import com.badlogic.gdx.utils.Array;
+import com.esotericsoftware.kryonet.Connection;
+import xyz.angm.game.world.World;
+import xyz.angm.game.world.blocks.Block;
+import xyz.angm.game.world.entities.Beast;
+
+/** Transfers the state of the world to a single client that joined after the game started.
+ * Blocks are sent in chunks of bounded size; a new chunk is only sent once the connection's write buffer
+ * has drained far enough. This keeps kryonet from overflowing the buffer and dropping the client on large bases.
+ * The state of all blocks is copied into records when the stream is created; chunks are sent from a network thread
+ * and never touch the blocks themselves. */
+class WorldStateStream {
+
+    /** The amount of blocks sent per chunk. Keeps chunks well below the object buffer size. */
+    private static final int BLOCKS_PER_CHUNK = 32;
+    /** The amount of bytes allowed to be pending in the write buffer before the next chunk is sent. */
+    private static final int MAX_PENDING_BYTES = 4096;
+
+    private final Connection connection;
+    /** The records of all blocks to transfer, see {@link WorldStateChunk#RECORD_SIZE}. */
+    private final int[] records;
+    private final int blockCount;
+    private int index = 0;
+
+    /** Creates a new stream and sends the header to the client. Should be called on the render thread,
+     * so that the snapshot is consistent with all edits broadcast after it.
+     * @param connection The connection to stream to.
+     * @param world The world to take the state from.
+     * @param waveActive If a wave of beasts is currently active. */
+    WorldStateStream(Connection connection, World world, boolean waveActive) {
+        this(connection, collectBlocks(world), world.getBeasts().toArray(Beast.class), waveActive);
+    }
+
+    /** Creates a new stream and sends the header to the client.
+     * @param connection The connection to stream to.
+     * @param records The records of all blocks to transfer, see {@link WorldStateChunk#writeRecord(int[], int, Block)}.
+     *                The array is not copied and must not be modified afterwards.
+     * @param beasts All beasts currently alive.
+     * @param waveActive If a wave of beasts is currently active. */
+    WorldStateStream(Connection connection, int[] records, Beast[] beasts, boolean waveActive) {
+        this.connection = connection;
+        this.records = records;
+        this.blockCount = records.length / WorldStateChunk.RECORD_SIZE;
+        connection.sendTCP(new WorldStateHeader(blockCount, beasts, waveActive));
+    }
+
+    private static int[] collectBlocks(World world) {
+        Array<Block> allBlocks = new Array<>(false, 64, Block.class);
+        world.map.iterateBlocks(allBlocks::add);
+        int[] records = new int[allBlocks.size * WorldStateChunk.RECORD_SIZE];
+        for (int i = 0; i < allBlocks.size; i++) WorldStateChunk.writeRecord(records, i, allBlocks.get(i));
+        return records;
+    }
+
+    /** Sends as many chunks as the connection can currently take.
+     * @return If the stream is finished, either by being done or the client disconnecting. */
+    boolean continueSending() {
+        if (!connection.isConnected()) return true;
+
+        while (index < blockCount && connection.getTcpWriteBufferSize() < MAX_PENDING_BYTES) {
+            int size = Math.min(BLOCKS_PER_CHUNK, blockCount - index);
+            int[] chunk = new int[size * WorldStateChunk.RECORD_SIZE];
+            System.arraycopy(records, index * WorldStateChunk.RECORD_SIZE, chunk, 0, chunk.length);
+            connection.sendTCP(new WorldStateChunk(chunk));
+            index += size;
+        }
+        return index >= blockCount;
+    }
+}
@@ -2,9 +2,7 @@ package xyz.angm.game.ui;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.glutils.ShapeRenderer;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
@@ -53,6 +51,6 @@ public class BlockPlacementPreview extends Image {
         blockProperties = BlockProperties.getProperties(blockId);
         setPosition((int) position.x, (int) position.y);
         setRotation(rotation.toDegrees());
-        setDrawable(new TextureRegionDrawable(new TextureRegion(Defactory.assets.get(blockProperties.getFullTexturePath(), Texture.class))));
+        setDrawable(new TextureRegionDrawable(Defactory.getTextureRegion(blockProperties.getTextureName())));
     }
 }
@@ -1,6 +1,5 @@
 package xyz.angm.game.ui;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
@@ -67,7 +66,7 @@ public class PlayerHud extends Group {
         BlockProperties.getAllBlocks().forEach(properties -> {
             if (!properties.displayedInBuildMenu) return;
 
-            VisImageButton button = new VisImageButton(new TextureRegionDrawable(Defactory.assets.get(properties.getFullTexturePath(), Texture.class)));
+            VisImageButton button = new VisImageButton(new TextureRegionDrawable(Defactory.getTextureRegion(properties.getTextureName())));
             buildSelectionButtons.add(button);
             button.addListener(buildTooltip.getClickListener(properties));
             button.addListener(new ChangeListener() {
@@ -0,0 +1,73 @@
+package xyz.angm.game.ui;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.profiling.GLProfiler;
+import com.badlogic.gdx.utils.Disposable;
+
+/** Records the cost of rendering frames: OpenGL draw calls, texture bindings and shader switches, as well as flushes of
+ * sprite batches, which happen on every texture switch. Averages per frame are logged every few seconds.
+ * Only enabled if the system property 'defactory.renderMetrics' is set, as intercepting all OpenGL calls is not free. */
+public class RenderMetrics implements Disposable {
+
+    /** System property; if set, render metrics are logged. */
+    private static final String METRICS_PROPERTY = "defactory.renderMetrics";
+    /** The interval at which metrics are logged, in seconds. */
+    private static final float LOG_INTERVAL = 5f;
+
+    private final GLProfiler profiler = new GLProfiler(Gdx.graphics);
+    private final SpriteBatch[] batches;
+    private long lastBatchFlushes;
+    private int frames = 0;
+    private float time = 0f;
+    private long drawCalls = 0;
+    private long textureBindings = 0;
+    private long shaderSwitches = 0;
+
+    /** Create new metrics and start recording.
+     * @param batches All batches drawn with each frame; their flushes are counted. */
+    public RenderMetrics(SpriteBatch... batches) {
+        this.batches = batches;
+        lastBatchFlushes = getBatchFlushes();
+        profiler.enable();
+    }
+
+    /** @return If render metrics were requested by system property. */
+    public static boolean isRequested() {
+        return System.getProperty(METRICS_PROPERTY) != null;
+    }
+
+    /** Call after every frame was rendered.
+     * @param delta Time since the last frame in seconds. */
+    public void frameRendered(float delta) {
+        drawCalls += profiler.getDrawCalls();
+        textureBindings += profiler.getTextureBindings();
+        shaderSwitches += profiler.getShaderSwitches();
+        profiler.reset();
+        frames++;
+        time += delta;
+        if (time < LOG_INTERVAL) return;
+
+        long batchFlushes = getBatchFlushes();
+        Gdx.app.log("RenderMetrics", String.format("%.1f FPS; per frame: %.1f draw calls, %.1f batch flushes, %.1f texture bindings, %.1f shader switches",
+                frames / time, (float) drawCalls / frames, (float) (batchFlushes - lastBatchFlushes) / frames,
+                (float) textureBindings / frames, (float) shaderSwitches / frames));
+        lastBatchFlushes = batchFlushes;
+        frames = 0;
+        time = 0f;
+        drawCalls = 0;
+        textureBindings = 0;
+        shaderSwitches = 0;
+    }
+
+    private long getBatchFlushes() {
+        long flushes = 0;
+        for (SpriteBatch batch : batches) flushes += batch.totalRenderCalls;
+        return flushes;
+    }
+
+    @Override
+    public void dispose() {
+        profiler.disable();
+    }
+}
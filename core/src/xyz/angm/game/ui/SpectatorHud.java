@@ -3,6 +3,7 @@ package xyz.angm.game.ui;
 import com.badlogic.gdx.utils.Align;
 import com.kotcrab.vis.ui.widget.VisProgressBar;
 import com.kotcrab.vis.ui.widget.VisWindow;
+import xyz.angm.game.network.SpawnRejection;
 import xyz.angm.game.ui.screens.GameScreen;
 import xyz.angm.game.ui.screens.Screen;
 
@@ -13,8 +14,14 @@ import static xyz.angm.game.world.entities.Player.PLAYER_HEALTH;
 public class SpectatorHud extends PlayerHud {
 
     private final GameScreen screen;
+    /** The time a spawn rejection is shown for, in seconds. */
+    private static final float SPAWN_REJECTION_TIME = 3f;
+
     private final VisProgressBar healthBar = new VisProgressBar(0, PLAYER_HEALTH, 1, false, "health-bar");
     private VisWindow beastsLeftWindow;
+    private VisWindow stateSyncWindow;
+    private VisWindow spawnRejectionWindow;
+    private float spawnRejectionTimeLeft = 0f;
 
     /** Construct a new HUD.
      * @param screen The screen the HUD will be a part of */
@@ -39,6 +46,18 @@ public class SpectatorHud extends PlayerHud {
         beastsLeftWindow.setPosition(Screen.getViewportWidth(), Screen.getViewportHeight(), Align.topRight);
         beastsLeftWindow.pack();
         addActor(beastsLeftWindow);
+
+        // Window displaying the progress of receiving the base; only visible while it is being received
+        stateSyncWindow = new VisWindow(Localization.get("hudStateSync", 0));
+        stateSyncWindow.pack();
+        stateSyncWindow.setPosition(Screen.getViewportWidth() / 2f, Screen.getViewportHeight(), Align.top);
+        addActor(stateSyncWindow);
+
+        // Window explaining why a beast was not spawned; only visible for a while after a rejection
+        spawnRejectionWindow = new VisWindow("");
+        spawnRejectionWindow.setPosition(Screen.getViewportWidth(), 0, Align.bottomRight);
+        spawnRejectionWindow.setVisible(false);
+        addActor(spawnRejectionWindow);
     }
 
     @Override
@@ -46,5 +65,19 @@ public class SpectatorHud extends PlayerHud {
         super.act(delta);
         healthBar.setValue(screen.getWorld().getPlayer().getHealth());
         beastsLeftWindow.getTitleLabel().setText(Localization.get("hudBeastsLeft", screen.getWorld().getBeastsLeft()));
+
+        float syncProgress = screen.getWorld().getStateSyncProgress();
+        stateSyncWindow.setVisible(syncProgress < 1f);
+        stateSyncWindow.getTitleLabel().setText(Localization.get("hudStateSync", syncProgress));
+
+        SpawnRejection.Reason rejection = screen.getWorld().takeSpawnRejection();
+        if (rejection != null) {
+            spawnRejectionWindow.getTitleLabel().setText(Localization.get(rejection.localizationKey));
+            spawnRejectionWindow.pack();
+            spawnRejectionWindow.setPosition(Screen.getViewportWidth(), 0, Align.bottomRight);
+            spawnRejectionTimeLeft = SPAWN_REJECTION_TIME;
+        }
+        spawnRejectionTimeLeft -= delta;
+        spawnRejectionWindow.setVisible(spawnRejectionTimeLeft > 0f);
     }
 }
@@ -25,6 +25,9 @@ public class AssetLoadingScreen extends Screen {
         Defactory.assets.update();
         progressBar.setValue(Defactory.assets.getProgress() * 100f);
 
-        if (Defactory.assets.isFinished()) game.setScreen(new MenuScreen(game));
+        if (Defactory.assets.isFinished()) {
+            game.assetsLoaded();
+            game.setScreen(new MenuScreen(game));
+        }
     }
 }
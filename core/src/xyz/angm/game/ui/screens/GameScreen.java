@@ -3,20 +3,24 @@ package xyz.angm.game.ui.screens;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.graphics.GL20;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import xyz.angm.game.Defactory;
+import xyz.angm.game.network.BlockEditBatch;
+import xyz.angm.game.network.BlockStateBatch;
 import xyz.angm.game.network.Client;
+import xyz.angm.game.network.EntitySnapshot;
+import xyz.angm.game.network.SpawnConfirmation;
+import xyz.angm.game.network.SpawnRejection;
+import xyz.angm.game.network.WorldStateChunk;
+import xyz.angm.game.network.WorldStateHeader;
 import xyz.angm.game.ui.PausePanel;
 import xyz.angm.game.ui.PlayerHud;
+import xyz.angm.game.ui.RenderMetrics;
 import xyz.angm.game.ui.SpectatorHud;
 import xyz.angm.game.ui.input.PlayerInputProcessor;
 import xyz.angm.game.ui.input.SpectatorInputProcessor;
-import xyz.angm.game.world.TileVector;
 import xyz.angm.game.world.World;
-import xyz.angm.game.world.blocks.Block;
 import xyz.angm.game.world.entities.Beast;
-import xyz.angm.game.world.entities.Player;
 
 /** The screen active while the game is running. */
 public class GameScreen extends Screen {
@@ -24,6 +28,8 @@ public class GameScreen extends Screen {
     private final World world;
     private final PlayerHud hud;
     private final InputMultiplexer inputMultiplexer = new InputMultiplexer();
+    /** Null unless requested by system property. */
+    private final RenderMetrics renderMetrics;
     private boolean pauseMenuActive = false;
 
     /** Constructs the screen. Automatically determines if player or spectator.
@@ -35,11 +41,16 @@ public class GameScreen extends Screen {
         this.hud = game.isServer() ? new PlayerHud(this) : new SpectatorHud(this);
 
         stage.addActor(hud);
-        if (!game.isServer()) game.getClient().addListener(this::serverPacketReceived);
+        if (!game.isServer()) {
+            game.getClient().addListener(this::serverPacketReceived);
+            game.getClient().send(Client.Status.STATE_REQUEST); // World is ready, blocks placed before joining are needed
+        }
 
         inputMultiplexer.addProcessor(stage);
         inputMultiplexer.addProcessor(game.isServer() ? new PlayerInputProcessor(this) : new SpectatorInputProcessor(this));
         Gdx.input.setInputProcessor(inputMultiplexer);
+
+        renderMetrics = RenderMetrics.isRequested() ? new RenderMetrics(world.getBatch(), (SpriteBatch) stage.getBatch()) : null;
     }
 
     public World getWorld() {
@@ -58,34 +69,44 @@ public class GameScreen extends Screen {
 
         stage.act(delta);
         stage.draw();
+        if (renderMetrics != null) renderMetrics.frameRendered(delta);
     }
 
-    // Called when a packet/object was received from the server. Only call on client instances.
+    // Called on the network thread when a packet/object was received from the server. Only call on client instances.
     private void serverPacketReceived(Object packet) {
-        if (packet instanceof Player) {  // Player should be synced
-            Player serverPlayer = (Player) packet;
-            Player localPlayer = world.getPlayer();
-            localPlayer.getPosition().set(serverPlayer.getPosition());
-            localPlayer.setHealth(serverPlayer.getHealth());
-            localPlayer.getCore().setHealth(serverPlayer.getCore().getHealth());
+        if (packet instanceof EntitySnapshot) {  // Player and beasts should be synced; the snapshot buffer is thread-safe
+            world.snapshotReceived((EntitySnapshot) packet);
         }
         else if (packet == Client.Status.DISCONNECTED) { // Disconnect from server
             Gdx.app.postRunnable(this::onServerDisconnect); // Disposing game screen requires render context
         }
-        else if (packet instanceof Block) { // Block should be placed
-            world.addBlock((Block) packet);
+        else world.postRunnable(() -> applyServerPacket(packet)); // Everything else changes the world
+    }
+
+    // Applies a packet changing the world. Only call on the thread acting the world
+    private void applyServerPacket(Object packet) {
+        if (packet instanceof BlockEditBatch) { // Blocks placed or removed during the last tick
+            world.applyEditBatch((BlockEditBatch) packet);
         }
-        else if (packet instanceof TileVector) { // Block should removed
-            world.removeBlock((TileVector) packet);
+        else if (packet instanceof BlockStateBatch) { // Health or material of blocks changed during the last tick
+            world.applyStateBatch((BlockStateBatch) packet);
         }
         else if (packet instanceof Beast) { // Beast was spawned or killed
             Beast beast = (Beast) packet;
             if (beast.getHealth() <= 0) world.removeBeast(beast);
             else world.addBeast(beast);
         }
-        else if (packet instanceof Array) { // Beast positions
-            // noinspection unchecked
-            world.updateBeastPositions((Array<Vector2>) packet);
+        else if (packet instanceof WorldStateHeader) { // Late join state transfer started
+            world.stateSyncStarted((WorldStateHeader) packet);
+        }
+        else if (packet instanceof WorldStateChunk) { // Part of the blocks placed before joining
+            world.stateChunkReceived((WorldStateChunk) packet);
+        }
+        else if (packet instanceof SpawnConfirmation) { // A beast requested by this spectator was spawned
+            world.spawnConfirmed((SpawnConfirmation) packet);
+        }
+        else if (packet instanceof SpawnRejection) { // A beast requested by this spectator was not spawned
+            world.spawnRejected((SpawnRejection) packet);
         }
         else if (packet == Client.Status.WAVE_START || packet == Client.Status.WAVE_END) {
             getWorld().waveStatusChanged((Client.Status) packet);
@@ -141,11 +162,7 @@ public class GameScreen extends Screen {
     public void dispose() {
         super.dispose();
         world.dispose();
+        if (renderMetrics != null) renderMetrics.dispose();
         game.disposeNetworkInterface();
     }
-
-    /** Call when a wave of beasts has begun. */
-    public void waveBegun() {
-        world.getPlayer().nextWave();
-    }
 }
@@ -27,9 +27,9 @@ public class MapLoadingScreen extends Screen {
     public void render(float delta) {
         super.render(delta);
 
-        float progress = generator.continueLoading();
+        float progress = generator.getProgress(); // Generated in the background
         progressBar.setValue(progress * 100f);
 
-        if (progress >= 1f) game.setScreen(new GameScreen(game, new World(generator, game.isServer())));
+        if (progress >= 1f) game.setScreen(new GameScreen(game, new World(generator, game.getNetworkInterface(), game.isServer())));
     }
 }
@@ -0,0 +1,107 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import xyz.angm.game.network.BlockEditBatch;
+import xyz.angm.game.network.NetworkInterface;
+import xyz.angm.game.world.blocks.Block;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** Collects all block edits made during a tick and sends them to clients as a single {@link BlockEditBatch}.
+ * Edits are deduplicated per tile; a block placed and removed again within the same tick is never sent.
+ * Ticks with too many edits for a single batch, like mass edits, are split into multiple batches. */
+class BlockEditBatcher {
+
+    /** Sorts tiles by row, then column; so that consecutive tiles end up next to each other. */
+    private static final Comparator<TileVector> TILE_ORDER =
+            Comparator.comparingInt(TileVector::getY).thenComparingInt(TileVector::getX);
+
+    private final ObjectSet<TileVector> removed = new ObjectSet<>();
+    private final ObjectMap<TileVector, Block> placed = new ObjectMap<>();
+    private final Array<TileVector> sortedTiles = new Array<>(false, 16, TileVector.class);
+    private final IntArray runs = new IntArray();
+
+    /** Call when a block was placed.
+     * @param block The block placed. */
+    void blockPlaced(Block block) {
+        placed.put(block.getPosition(), block);
+    }
+
+    /** Call when a block was removed.
+     * @param position The position of the removed block. */
+    void blockRemoved(TileVector position) {
+        // If the block was placed this tick, clients never knew about it
+        if (placed.remove(position) == null) removed.add(new TileVector().set(position));
+    }
+
+    /** Sends all edits collected since the last flush, if there are any.
+     * @param netIface The interface to send the batch with. */
+    void flush(NetworkInterface netIface) {
+        if (removed.size == 0 && placed.size == 0) return;
+        int[] removedRuns = encodeRemoved();
+        int[] placedRuns = encodePlaced();
+        removed.clear();
+        placed.clear();
+
+        if (removedRuns.length + placedRuns.length <= BlockEditBatch.MAX_INTS) {
+            netIface.send(new BlockEditBatch(removedRuns, placedRuns));
+            return;
+        }
+        // Too large for one batch; all removals are sent first, as they have to be applied before all placements
+        sendSplit(netIface, removedRuns, BlockEditBatch.REMOVED_RUN_SIZE, true);
+        sendSplit(netIface, placedRuns, BlockEditBatch.PLACED_RUN_SIZE, false);
+    }
+
+    // Sends runs in as many batches as needed, splitting between runs
+    private static void sendSplit(NetworkInterface netIface, int[] runs, int runSize, boolean removals) {
+        int maxLength = BlockEditBatch.MAX_INTS - BlockEditBatch.MAX_INTS % runSize;
+        for (int start = 0; start < runs.length; start += maxLength) {
+            int[] part = Arrays.copyOfRange(runs, start, Math.min(start + maxLength, runs.length));
+            netIface.send(removals ? new BlockEditBatch(part, new int[0]) : new BlockEditBatch(new int[0], part));
+        }
+    }
+
+    // Encodes removed tiles into runs of (x, y, length)
+    private int[] encodeRemoved() {
+        sortTiles(removed);
+        runs.clear();
+        for (TileVector tile : sortedTiles) {
+            int last = runs.size - BlockEditBatch.REMOVED_RUN_SIZE;
+            if (last >= 0 && continuesRun(last, tile)) runs.incr(last + 2, 1);
+            else runs.addAll(tile.getX(), tile.getY(), 1);
+        }
+        return runs.toArray();
+    }
+
+    // Encodes placed blocks into runs of (x, y, length, type, direction)
+    private int[] encodePlaced() {
+        sortTiles(placed.keys());
+        runs.clear();
+        for (TileVector tile : sortedTiles) {
+            Block block = placed.get(tile);
+            int type = block.getProperties().id;
+            int direction = block.getDirection().ordinal();
+
+            int last = runs.size - BlockEditBatch.PLACED_RUN_SIZE;
+            if (last >= 0 && continuesRun(last, tile) && runs.get(last + 3) == type && runs.get(last + 4) == direction) {
+                runs.incr(last + 2, 1);
+            } else runs.addAll(tile.getX(), tile.getY(), 1, type, direction);
+        }
+        return runs.toArray();
+    }
+
+    // Is the tile directly right of the end of the run starting at the given index?
+    private boolean continuesRun(int run, TileVector tile) {
+        return runs.get(run + 1) == tile.getY() && runs.get(run) + runs.get(run + 2) == tile.getX();
+    }
+
+    private void sortTiles(Iterable<TileVector> tiles) {
+        sortedTiles.clear();
+        for (TileVector tile : tiles) sortedTiles.add(tile);
+        sortedTiles.sort(TILE_ORDER);
+    }
+}
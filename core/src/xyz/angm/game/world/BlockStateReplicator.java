@@ -0,0 +1,49 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectSet;
+import xyz.angm.game.network.BlockStateBatch;
+import xyz.angm.game.network.NetworkInterface;
+import xyz.angm.game.world.blocks.Block;
+
+/** Collects blocks whose state changed during a tick and sends the changed fields to clients as a single {@link BlockStateBatch},
+ * or multiple if there are too many changes for one.
+ * Blocks track which of their fields changed themselves; this only remembers which blocks to look at,
+ * so a tick does not need to go over all blocks. */
+class BlockStateReplicator {
+
+    private final ObjectSet<Block> changed = new ObjectSet<>();
+    private final IntArray records = new IntArray();
+
+    /** Call after the state of a block changed.
+     * @param block The block changed. */
+    void blockChanged(Block block) {
+        changed.add(block);
+    }
+
+    /** Sends the changed fields of all blocks reported since the last flush, if there are any.
+     * Should be called after flushing the {@link BlockEditBatcher}, so that clients know all blocks referenced.
+     * @param map The map the blocks are in. Blocks no longer in it are skipped; clients get their removal instead.
+     * @param netIface The interface to send the batch with. */
+    void flush(WorldMap map, NetworkInterface netIface) {
+        if (changed.size == 0) return;
+        records.clear();
+
+        for (Block block : changed) {
+            int fields = block.takeDirtyFields();
+            if (map.getBlock(block.getPosition()) != block) continue;
+
+            for (int field = 0; fields != 0; field++, fields >>>= 1) {
+                if ((fields & 1) != 0) records.addAll(block.getPosition().getX(), block.getPosition().getY(), field, block.getField(field));
+            }
+        }
+
+        changed.clear();
+        int maxLength = BlockStateBatch.MAX_RECORDS * BlockStateBatch.RECORD_SIZE;
+        for (int start = 0; start < records.size; start += maxLength) {
+            int[] part = new int[Math.min(maxLength, records.size - start)];
+            System.arraycopy(records.items, start, part, 0, part.length);
+            netIface.send(new BlockStateBatch(part));
+        }
+    }
+}
@@ -23,14 +23,16 @@ class PhysicsEngine {
 
     /** The step size of every Box2D engine step. */
     private static final float TIME_STEP = 1 / 60f;
-    /** Color of the light source of BlockType.TORCH blocks. */
-    private static final Color TORCH_LIGHT_COLOR = new Color(0xFF8D0099);
     /** Half the size of items. */
     private static final float ITEM_SIZE = 0.25f;
     /** Size of sensor blocks. Smaller to improve interactions between conveyors and items. */
     private static final float SENSOR_BODY_SIZE = 0.25f;
     /** Speed the bullets travel at. (Scales the vector of the force applied to them) */
     private static final float BULLET_SPEED = 50f;
+    /** Collision category of static bodies; blocks. */
+    private static final short BLOCK_CATEGORY = 0x0001;
+    /** Collision category of dynamic bodies; entities. Collides with everything, but does not cast torch shadows. */
+    private static final short ENTITY_CATEGORY = 0x0002;
 
     private final xyz.angm.game.world.World gameWorld;
     private final World pWorld = new World(new Vector2(0, 0), true);
@@ -42,7 +44,8 @@ class PhysicsEngine {
     private final boolean authority;
 
     private final RayHandler rayHandler = new RayHandler(pWorld);
-    private final ObjectMap<Body, Light> blockLights = new ObjectMap<>();
+    private final TorchLights torchLights = new TorchLights(rayHandler, BLOCK_CATEGORY);
+    private final ObjectMap<TileVector, Light> blockLights = new ObjectMap<>();
     private float timeSinceLastStep = 0f;
     private final BodyDef bodyDef = new BodyDef();
     private final Vector2 tmpV = new Vector2();
@@ -72,6 +75,7 @@ class PhysicsEngine {
      * @param camera The camera to use for rendering. */
     void render(OrthographicCamera camera) {
         rayHandler.setCombinedMatrix(camera);
+        torchLights.update();
         rayHandler.updateAndRender();
     }
 
@@ -81,7 +85,9 @@ class PhysicsEngine {
         if (authority) stepEngine(deltaTime);
         else {
             // All client entities are beasts; safe assumption
-            entities.forEach(beastBody -> beastBody.setTransform(((Beast) beastBody.getUserData()).getPosition(), 0));
+            entities.forEach(beastBody -> {
+                if (checkDestroy(beastBody, entities)) beastBody.setTransform(((Beast) beastBody.getUserData()).getPosition(), 0);
+            });
             playerBody.setTransform(((Player) playerBody.getUserData()).getPosition(), 0);
         }
     }
@@ -140,6 +146,7 @@ class PhysicsEngine {
         fixDef.friction = friction;
         fixDef.restitution = restitution;
         fixDef.isSensor = sensor;
+        fixDef.filter.categoryBits = (type == BodyDef.BodyType.StaticBody) ? BLOCK_CATEGORY : ENTITY_CATEGORY;
 
         body.createFixture(fixDef);
         body.setUserData(userData);
@@ -159,11 +166,8 @@ class PhysicsEngine {
                 block.getProperties().isSensor ? SENSOR_BODY_SIZE : 0.5f, 0f, 0.2f, 0f, block.getProperties().isSensor);
         blocks.put(block.getPosition(), blockBody);
 
-        if (block.getProperties().type == BlockType.TORCH) {
-            PointLight torchLight = new PointLight(rayHandler, 16, TORCH_LIGHT_COLOR, 10, 0, 0);
-            torchLight.attachToBody(blockBody);
-            blockLights.put(blockBody, torchLight);
-        }
+        torchLights.blockChanged(block.getPosition());
+        if (block.getProperties().type == BlockType.TORCH) blockLights.put(block.getPosition(), torchLights.torchAdded(block.getPosition()));
     }
 
     /** Call when a block was removed. Will remove the block from the physics simulation.
@@ -171,8 +175,9 @@ class PhysicsEngine {
      * @param position The position of the block removed. */
     void blockRemoved(TileVector position) {
         Body block = blocks.remove(position);
-        if (((Block) block.getUserData()).getProperties().type == BlockType.TORCH) blockLights.remove(block).remove(true);
+        if (((Block) block.getUserData()).getProperties().type == BlockType.TORCH) torchLights.torchRemoved(position, blockLights.remove(position));
         pWorld.destroyBody(block);
+        torchLights.blockChanged(position);
     }
 
     /** Call when an item has been added to the world.
@@ -312,12 +317,14 @@ class PhysicsEngine {
         private void processBlockAndItem(Item item, Block block) {
             if (block.getProperties().materialRequired == item.material) {
                 block.incrementMaterial();
+                gameWorld.blockStateChanged(block);
                 gameWorld.removeItem(item);
             }
         }
 
         private void processBlockAndBeast(Block block) {
             block.onHit();
+            gameWorld.blockStateChanged(block);
             if (block.getHealth() <= 0) deadBlocks.add(block);
         }
 
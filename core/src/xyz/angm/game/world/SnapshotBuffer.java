@@ -0,0 +1,93 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import xyz.angm.game.network.EntitySnapshot;
+import xyz.angm.game.world.entities.Player;
+
+/** Buffers entity snapshots received from the server and interpolates between them. Used on the client.
+ * Entities are displayed slightly in the past (see INTERPOLATION_DELAY), so there is nearly always a newer snapshot
+ * to interpolate towards. Short gaps in arrival are bridged by extrapolating from the last two snapshots.
+ * Snapshots are added from the network thread, so all methods are synchronized. */
+class SnapshotBuffer {
+
+    /** How far in the past entities are displayed, in ms. 1.5 times the server's snapshot interval. */
+    private static final long INTERPOLATION_DELAY = 150;
+    /** How far past the newest snapshot entities may be extrapolated, in ms. */
+    private static final long MAX_EXTRAPOLATION = 100;
+    /** How much the clock offset estimate decreases per snapshot, in ms. Allows recovering from clock drift. */
+    private static final long CLOCK_OFFSET_DRIFT = 1;
+    /** The amount of snapshots kept. */
+    private static final int CAPACITY = 16;
+
+    private final EntitySnapshot[] snapshots = new EntitySnapshot[CAPACITY];
+    private int start = 0;
+    private int size = 0;
+    /** Estimated difference between server and local clock, in ms. Includes the lowest transmission delay seen. */
+    private long clockOffset;
+
+    /** Add a snapshot received from the server.
+     * @param snapshot The new snapshot. */
+    synchronized void add(EntitySnapshot snapshot) {
+        // Transmission delay is never negative; the highest offset seen is the one with the least delay
+        long offset = snapshot.getServerTime() - TimeUtils.millis();
+        if (size == 0 || offset > clockOffset) clockOffset = offset;
+        else clockOffset -= CLOCK_OFFSET_DRIFT;
+
+        if (size == CAPACITY) {
+            start = (start + 1) % CAPACITY;
+            size--;
+        }
+        snapshots[(start + size) % CAPACITY] = snapshot;
+        size++;
+    }
+
+    /** Apply the interpolated state at the current render time.
+     * @param player The player to update.
+     * @param beastPositions The beast positions to update. */
+    synchronized void apply(Player player, Array<Vector2> beastPositions) {
+        if (size == 0) return;
+        long renderTime = TimeUtils.millis() + clockOffset - INTERPOLATION_DELAY;
+        EntitySnapshot newest = get(size - 1);
+
+        EntitySnapshot from;
+        EntitySnapshot to;
+        if (size == 1 || renderTime <= get(0).getServerTime()) {
+            from = to = (size == 1) ? newest : get(0);
+        } else if (renderTime >= newest.getServerTime()) { // No newer snapshot yet; extrapolate
+            from = get(size - 2);
+            to = newest;
+            renderTime = Math.min(renderTime, newest.getServerTime() + MAX_EXTRAPOLATION);
+        } else {
+            int i = size - 2;
+            while (get(i).getServerTime() > renderTime) i--;
+            from = get(i);
+            to = get(i + 1);
+        }
+
+        long interval = to.getServerTime() - from.getServerTime();
+        float alpha = (interval == 0) ? 1f : (float) (renderTime - from.getServerTime()) / interval;
+
+        player.getPosition().set(lerp(from.getPlayerX(), to.getPlayerX(), alpha), lerp(from.getPlayerY(), to.getPlayerY(), alpha));
+        player.setHealth(newest.getPlayerHealth());
+        player.getCore().setHealth(newest.getCoreHealth());
+
+        // Beasts spawned or killed in between shift the order; don't interpolate then
+        float[] fromBeasts = from.getBeastPositions();
+        float[] toBeasts = to.getBeastPositions();
+        if (fromBeasts.length != toBeasts.length) fromBeasts = toBeasts;
+        for (int i = 0; i < beastPositions.size && (i * 2) < toBeasts.length; i++) {
+            beastPositions.get(i).set(lerp(fromBeasts[i * 2], toBeasts[i * 2], alpha), lerp(fromBeasts[i * 2 + 1], toBeasts[i * 2 + 1], alpha));
+        }
+    }
+
+    private EntitySnapshot get(int index) {
+        return snapshots[(start + index) % CAPACITY];
+    }
+
+    // Unclamped linear interpolation; alpha > 1 extrapolates
+    private static float lerp(float from, float to, float alpha) {
+        return from + (to - from) * alpha;
+    }
+}
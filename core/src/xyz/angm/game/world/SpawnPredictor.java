@@ -0,0 +1,69 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.TimeUtils;
+import xyz.angm.game.world.entities.Beast;
+
+/** Shows beasts requested by the spectator right away, instead of a round trip later once the server spawned them.
+ * Predicted beasts are only displayed; they take no part in the simulation. They are removed once the server answered the request:
+ * On confirmation, the authoritative beast was already broadcast and takes its place; on rejection, it is simply gone.
+ * Predictions the server does not answer in time expire, and are treated like a rejection. */
+class SpawnPredictor {
+
+    /** The time after which a prediction is removed if the server did not answer, in ms. */
+    private static final long PREDICTION_TIMEOUT = 5000;
+
+    /** All predictions not yet answered, by request ID. */
+    private final IntMap<Prediction> predictions = new IntMap<>();
+    private final IntArray expired = new IntArray();
+    private int nextRequestId = 0;
+
+    /** Shows a predicted beast.
+     * @param position The position the beast was requested at.
+     * @param stage The stage to show it on.
+     * @return The ID of the request, to be sent to the server. */
+    int predict(TileVector position, Stage stage) {
+        Beast beast = new Beast(position, -1);
+        beast.registerToStage(stage);
+        beast.markPredicted();
+        predictions.put(nextRequestId, new Prediction(beast));
+        return nextRequestId++;
+    }
+
+    /** Call when the server answered a request, either by confirming or rejecting it. Removes the prediction.
+     * @param requestId The ID of the request.
+     * @return If the request was still pending; false if it already expired. */
+    boolean answered(int requestId) {
+        Prediction prediction = predictions.remove(requestId);
+        if (prediction == null) return false;
+        prediction.beast.dispose();
+        return true;
+    }
+
+    /** Removes all predictions the server did not answer in time. Should be called every tick.
+     * @return The amount of predictions removed; their beasts should be given back like on rejection. */
+    int removeExpired() {
+        if (predictions.size == 0) return 0;
+        long now = TimeUtils.millis();
+        for (IntMap.Entry<Prediction> entry : predictions.entries()) {
+            if (now - entry.value.requestTime > PREDICTION_TIMEOUT) expired.add(entry.key);
+        }
+        for (int i = 0; i < expired.size; i++) answered(expired.get(i));
+        int removed = expired.size;
+        expired.clear();
+        return removed;
+    }
+
+    /** A beast shown before the server confirmed it. */
+    private static class Prediction {
+
+        private final Beast beast;
+        private final long requestTime = TimeUtils.millis();
+
+        private Prediction(Beast beast) {
+            this.beast = beast;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package xyz.angm.game.world;
+
+/** The terrain of a world: The type of every tile, as one byte per tile, classified during generation.
+ * Queries are O(1) and need no noise evaluation; gameplay systems should use this instead of anything rendered.
+ * Independent of screen resolution; every client of a world has the same terrain. Immutable once generated,
+ * and thus safe to query from any thread. */
+public class Terrain {
+
+    /** The amount of grass variants; they are tile values 0 to 3. */
+    static final int GRASS_VARIANTS = 4;
+    /** Tile value of stone. */
+    static final byte STONE = 4;
+    /** Tile value of stone tile. */
+    static final byte STONE_TILE = 5;
+    /** The amount of tile values. */
+    static final int TYPES = 6;
+
+    private final int width;
+    private final int height;
+    /** The value of every tile, row by row starting at the bottom. */
+    private final byte[] tiles;
+
+    /** Create new terrain.
+     * @param width The width, in tiles.
+     * @param height The height, in tiles.
+     * @param tiles The value of every tile, row by row starting at the bottom. Not copied. */
+    Terrain(int width, int height, byte[] tiles) {
+        this.width = width;
+        this.height = height;
+        this.tiles = tiles;
+    }
+
+    /** Get the type of a tile.
+     * @param x The column of the tile.
+     * @param y The row of the tile.
+     * @return The type of the tile, or null if it is outside of the world. */
+    public TerrainType getType(int x, int y) {
+        if (!isInBounds(x, y)) return null;
+        return TerrainType.of(getTile(x, y));
+    }
+
+    /** Calls the given method on all tiles in a region, row by row. Parts of the region outside of the world are skipped.
+     * @param fromX The first column, inclusive.
+     * @param fromY The first row, inclusive.
+     * @param toX The last column, inclusive.
+     * @param toY The last row, inclusive.
+     * @param toRun The consumer to run. Will be run for all tiles in the region. */
+    public void iterateRegion(int fromX, int fromY, int toX, int toY, TileConsumer toRun) {
+        int lastX = Math.min(toX, width - 1);
+        int lastY = Math.min(toY, height - 1);
+        for (int y = Math.max(fromY, 0); y <= lastY; y++) {
+            for (int x = Math.max(fromX, 0); x <= lastX; x++) toRun.accept(x, y, TerrainType.of(tiles[y * width + x]));
+        }
+    }
+
+    /** @param x The column of the tile.
+     * @param y The row of the tile.
+     * @return If the tile is inside of the world. */
+    public boolean isInBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    /** @param x The column of the tile.
+     * @param y The row of the tile.
+     * @return The value of the tile, including the grass variant. Must be in bounds. */
+    byte getTile(int x, int y) {
+        return tiles[y * width + x];
+    }
+
+    /** @return The width, in tiles. */
+    public int getWidth() {
+        return width;
+    }
+
+    /** @return The height, in tiles. */
+    public int getHeight() {
+        return height;
+    }
+
+    /** A method run for tiles of a region. */
+    @FunctionalInterface
+    public interface TileConsumer {
+
+        /** Called for a single tile.
+         * @param x The column of the tile.
+         * @param y The row of the tile.
+         * @param type The type of the tile. */
+        void accept(int x, int y, TerrainType type);
+    }
+}
@@ -0,0 +1,32 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.Gdx;
+
+/** Measures the throughput of terrain generation, including classifying every tile.
+ * Run by launching with '--benchmark-terrain N'; results are logged. Requires assets to be loaded. */
+public class TerrainBenchmark {
+
+    private TerrainBenchmark() {}
+
+    /** Generates terrain a few times and logs the time taken. The first run is a warm-up and not counted.
+     * Blocks until done; should be run in the background.
+     * @param runs The amount of measured runs. */
+    public static void run(int runs) {
+        long totalNanos = 0;
+        long totalTiles = 0;
+        for (int run = 0; run <= runs; run++) {
+            long start = System.nanoTime();
+            TerrainGenerator generator = new TerrainGenerator(run, null); // Uncached; would measure the disk otherwise
+            generator.awaitDone();
+            long nanos = System.nanoTime() - start;
+
+            if (run == 0) continue; // Warm-up; lets the JIT compile the kernel
+            totalNanos += nanos;
+            totalTiles += generator.getTileCount();
+            Gdx.app.log("TerrainBenchmark", String.format("Run %d: %.1f ms, %.1f Mtiles/s",
+                    run, nanos / 1e6, generator.getTileCount() / (nanos / 1e3)));
+        }
+        if (runs > 0) Gdx.app.log("TerrainBenchmark", String.format("Average: %.1f ms, %.1f Mtiles/s",
+                totalNanos / 1e6 / runs, totalTiles / (totalNanos / 1e3)));
+    }
+}
@@ -0,0 +1,118 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.Gdx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/** A cache of generated terrain on disk, so that joining the same world again skips generation entirely.
+ * Entries are keyed by a name chosen by the generator and {@link TerrainGenerator#VERSION}, and loaded by memory-mapping them.
+ * The least recently used entries are evicted once the cache grows above its size limit.
+ * Entries are written to a temporary file first and then moved into place, so multiple processes can share a cache. */
+class TerrainCache {
+
+    /** The maximum size of all entries together, in bytes. A single entry is one byte per tile, below 100 KB. */
+    private static final long MAX_SIZE = 512L * 1024 * 1024;
+    /** The file extension of entries. */
+    private static final String EXTENSION = ".terrain";
+
+    private final Path directory;
+
+    /** Create a new cache.
+     * @param directory The directory to keep entries in. Created when needed. */
+    TerrainCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /** Loads terrain from the cache, if present. Marks it as recently used.
+     * @param key The key of the terrain; must be unique for the seed and size of the terrain.
+     * @param terrain The buffer to load the terrain into. Its position is not changed.
+     * @return If the terrain was cached and loaded. The buffer's content is undefined if not. */
+    boolean load(String key, ByteBuffer terrain) {
+        Path file = getFile(key);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != terrain.capacity()) return false; // Corrupt
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer target = terrain.duplicate();
+            target.clear();
+            target.put(mapped);
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return true;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            Gdx.app.error("TerrainCache", "Could not load cached terrain " + file + ".", e);
+            return false;
+        }
+    }
+
+    /** Stores terrain in the cache, evicting the least recently used entries if it is full.
+     * @param key The key of the terrain; see {@link #load(String, ByteBuffer)}.
+     * @param terrain The terrain. Its position is not changed. */
+    void store(String key, ByteBuffer terrain) {
+        Path temp = null;
+        try {
+            Files.createDirectories(directory);
+            temp = Files.createTempFile(directory, "terrain", ".tmp");
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer source = terrain.duplicate();
+                source.clear();
+                while (source.hasRemaining()) channel.write(source);
+            }
+            Files.move(temp, getFile(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            evict();
+        } catch (IOException e) {
+            Gdx.app.error("TerrainCache", "Could not store terrain in cache.", e);
+            deleteQuietly(temp);
+        }
+    }
+
+    // Deletes the least recently used entries until the cache is within its size limit
+    private void evict() throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            stream.forEach(entries::add);
+        }
+        entries.sort(Comparator.comparingLong(TerrainCache::lastUsed).reversed());
+
+        long size = 0;
+        for (Path entry : entries) {
+            size += Files.size(entry);
+            if (size > MAX_SIZE) deleteQuietly(entry);
+        }
+    }
+
+    private Path getFile(String key) {
+        return directory.resolve(key + "-v" + TerrainGenerator.VERSION + EXTENSION);
+    }
+
+    private static long lastUsed(Path entry) {
+        try {
+            return Files.getLastModifiedTime(entry).toMillis();
+        } catch (IOException e) {
+            return 0; // Gone or unreadable; evict first
+        }
+    }
+
+    // Deletes the file if it exists; it might still be mapped by another process, in which case it stays
+    private static void deleteQuietly(Path file) {
+        if (file == null) return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            Gdx.app.log("TerrainCache", "Could not delete " + file + ".");
+        }
+    }
+}
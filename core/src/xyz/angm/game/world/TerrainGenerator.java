@@ -1,14 +1,21 @@
 package xyz.angm.game.world;
 
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.TextureData;
-import xyz.angm.game.Defactory;
-import xyz.angm.game.ui.screens.Screen;
+import com.badlogic.gdx.Gdx;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
-/** Generates random terrain using a noise function. */
+import static xyz.angm.game.world.World.WORLD_VIEWPORT_HEIGHT;
+import static xyz.angm.game.world.World.WORLD_VIEWPORT_WIDTH;
+
+/** Generates random terrain using a noise function: The type of every tile of the world, see {@link Terrain}.
+ * Every tile is a pure function of the seed and its position; generation runs on the common {@link ForkJoinPool},
+ * starting as soon as the generator is created. Noise is evaluated a row at a time.
+ * Generated terrain is kept in a {@link TerrainCache}; terrain found in it is loaded instead of being generated. */
 public class TerrainGenerator {
 
     /** Chance for stone to generate. */
@@ -17,114 +24,142 @@ public class TerrainGenerator {
     private static final double STONE_TILE_CHANCE = 0.30f;
     /** Chance for enhanced-grass-direction to generate. */
     private static final double GRASS_CHANCE = 0.20f;
-    /** The amount of lines to be rendered per continueLoading call. */
-    private static final int LINES_PER_STEP = 30;
+    /** The directory of the terrain cache, relative to the user's home directory. */
+    private static final String CACHE_DIRECTORY = ".defactory/terrain";
     /** Multiplicator for the world map. Takes the viewport size as base. */
     public static final int WORLD_SIZE_MULTIPLICATOR = 3;
+    /** Version of the generated terrain. Increment on any change to the output; invalidates all cached terrain. */
+    static final int VERSION = 3;
 
     /** Seed used for generation. */
     final long seed;
     private final SimplexNoiseGenerator noiseGenerator;
-    private final Random random;
-    private final Pixmap[] grass = new Pixmap[4];
-    private final Pixmap stone;
-    private final Pixmap stoneTile;
-    private final Pixmap map = new Pixmap(
-            WORLD_SIZE_MULTIPLICATOR * Screen.getViewportWidth(), WORLD_SIZE_MULTIPLICATOR * Screen.getViewportHeight(), Pixmap.Format.RGB888);
-    private int index = 0;
-    private int grassDirection = 1;
-
-    /** Create a terrain generator. Seed is used for randomness; same seed = same world
+    private final int width = (int) Math.ceil(WORLD_VIEWPORT_WIDTH * WORLD_SIZE_MULTIPLICATOR);
+    private final int height = (int) Math.ceil(WORLD_VIEWPORT_HEIGHT * WORLD_SIZE_MULTIPLICATOR);
+    private final byte[] types = new byte[width * height];
+    private final AtomicInteger rowsGenerated = new AtomicInteger();
+    private final TerrainCache cache;
+    private final ForkJoinTask<?> generation;
+
+    /** Create a terrain generator and start generating, or loading from the cache. Seed is used for randomness; same seed = same world
      * @param seed Seed to be used */
     public TerrainGenerator(long seed) {
+        this(seed, new TerrainCache(Gdx.files.external(CACHE_DIRECTORY).file().toPath()));
+    }
+
+    /** Create a terrain generator and start generating.
+     * @param seed Seed to be used
+     * @param cache The cache to load from and store into; null to always generate. */
+    TerrainGenerator(long seed, TerrainCache cache) {
         this.seed = seed;
-        random = new Random(seed);
-        noiseGenerator = new SimplexNoiseGenerator();
-
-        TextureData[] grassTD = new TextureData[4];
-        for (int i = 0; i < grassTD.length; i++) {
-            grassTD[i] = Defactory.assets.get("textures/map/grass" + i + ".png", Texture.class).getTextureData();
-            grassTD[i].prepare();
-            grass[i] = grassTD[i].consumePixmap();
-        }
+        this.cache = cache;
+        noiseGenerator = new SimplexNoiseGenerator(new Random(seed));
+        generation = ForkJoinPool.commonPool().submit(this::loadOrGenerate);
+    }
 
-        TextureData stoneTD = Defactory.assets.get("textures/map/stone.png", Texture.class).getTextureData();
-        TextureData stoneTileTD = Defactory.assets.get("textures/map/stoneTile.png", Texture.class).getTextureData();
-        stoneTD.prepare();
-        stoneTileTD.prepare();
-        stone = stoneTD.consumePixmap();
-        stoneTile = stoneTileTD.consumePixmap();
+    /** Returns the progress of generation. Can be polled from any thread.
+     * @return Loading progress in range 0.0-1.0; the terrain is done at 1.0. */
+    public float getProgress() {
+        return (float) rowsGenerated.get() / height;
     }
 
-    /** Creates a Texture displaying the ground, using the proper terrain.
-     * @return A Texture constructed using the created pixmap. */
-    Texture getTexture() {
-        return new Texture(map);
+    /** Blocks until generation is done. */
+    public void awaitDone() {
+        generation.join();
     }
 
-    /** Continue loading. Call every frame.
-     * @return Loading progress. */
-    public float continueLoading() {
-        for (int x = 0; x < map.getWidth(); x++) {
-            for (int y = index; y < (index + LINES_PER_STEP) && y < map.getHeight(); y++) {
-                double noise = noiseGenerator.generateDot(x, y);
-
-                Pixmap copyFrom;
-                if (noise < STONE_CHANCE) copyFrom = stone;
-                else if (noise < (STONE_TILE_CHANCE + STONE_CHANCE)) copyFrom = stoneTile;
-                else if (noise > (1 - GRASS_CHANCE)) {
-                    copyFrom = grass[grassDirection];
-                    grassDirection++;
-                    if (grassDirection > 3) grassDirection = 0;
-                } else copyFrom = grass[random.nextInt(3)];
-
-                map.setColor(copyFrom.getPixel((x % copyFrom.getWidth()), (y % copyFrom.getWidth())));
-                map.drawPixel(x, y);
-            }
+    /** @return The generated terrain. Only call once generation is done. */
+    Terrain getTerrain() {
+        return new Terrain(width, height, types);
+    }
+
+    /** @return The amount of tiles of the terrain. */
+    int getTileCount() {
+        return types.length;
+    }
+
+    // Loads the terrain from the cache; generates and caches it if it is not cached yet
+    private void loadOrGenerate() {
+        String key = seed + "-" + width + "x" + height;
+        if (cache != null && cache.load(key, ByteBuffer.wrap(types))) {
+            rowsGenerated.set(height);
+            return;
         }
-        index += LINES_PER_STEP;
-        return (float) index / map.getHeight();
+        double[] noise = new double[width];
+        for (int y = 0; y < height; y++) {
+            noiseGenerator.generateRow(y, noise);
+            for (int x = 0; x < width; x++) types[y * width + x] = getType(x, y, noise[x]);
+            rowsGenerated.incrementAndGet();
+        }
+        if (cache != null) cache.store(key, ByteBuffer.wrap(types));
+    }
+
+    // Returns the type of the tile at a position; depends on nothing but the seed and the position
+    private byte getType(int x, int y, double noise) {
+        if (noise < STONE_CHANCE) return Terrain.STONE;
+        else if (noise < (STONE_TILE_CHANCE + STONE_CHANCE)) return Terrain.STONE_TILE;
+        else if (noise > (1 - GRASS_CHANCE)) return (byte) (hash(x, y) % Terrain.GRASS_VARIANTS);
+        else return (byte) (hash(x, y) % (Terrain.GRASS_VARIANTS - 1));
+    }
+
+    // Hashes the position together with the seed, for per-tile variation. Returns a non-negative int
+    private int hash(int x, int y) {
+        long hash = seed ^ (x * 0x9E3779B97F4A7C15L) ^ (y * 0xC2B2AE3D27D4EB4FL);
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL; // Finalizer of MurmurHash3; mixes all bits
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash & Integer.MAX_VALUE;
     }
 
-    private class SimplexNoiseGenerator {
+    private static class SimplexNoiseGenerator {
 
         // These values heavily influence terrain/noise generation.
         private static final int OCTAVES = 3;
         private static final double ROUGHNESS = 0.1;
-        private static final double SCALE = 0.001;
+        private static final double SCALE = 0.016; // Per tile
+
+        // Skewing and unskewing factors for 2D
+        private static final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
+        private static final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
+        // The gradients used in 2D, flattened; the z component of the original 3D gradients is never used
+        private static final double[] GRAD_X = {1, -1, 1, -1, 1, -1, 1, -1, 0, 0, 0, 0};
+        private static final double[] GRAD_Y = {1, 1, -1, -1, 0, 0, 0, 0, 1, -1, 1, -1};
 
-        private final int[][] grad3 = {{1, 1, 0}, {-1, 1, 0}, {1, -1, 0}, {-1, -1, 0}, {1, 0, 1},
-                {-1, 0, 1}, {1, 0, -1}, {-1, 0, -1}, {0, 1, 1}, {0, -1, 1},
-                {0, 1, -1}, {0, -1, -1}};
         private final int[] perm = new int[512];
+        /** perm with every value modulo 12; the index of a gradient. */
+        private final int[] permMod12 = new int[512];
 
-        SimplexNoiseGenerator() {
+        /** Create a new generator. Only uses the random during construction; thread-safe afterwards.
+         * @param random The random to create the permutation table with. */
+        SimplexNoiseGenerator(Random random) {
             int[] p = new int[256];
             for (int i = 0; i < p.length; i++) p[i] = random.nextInt(255);
-            for (int i = 0; i < perm.length; i++) perm[i] = p[i & 255];
+            for (int i = 0; i < perm.length; i++) {
+                perm[i] = p[i & 255];
+                permMod12[i] = perm[i] % 12;
+            }
         }
 
-        /** Calculate the terrain to be used at the specified coordinates.
-         * @return The terrain to be used; double in range 0.0-1.0 */
-        double generateDot(int x, int y) {
-            double noiseTotal = 0.0;
+        /** Calculate the terrain to be used for a whole row.
+         * @param y The row.
+         * @param out Receives the terrain value of every column, in range 0.0-1.0. Its length is the width of the row. */
+        void generateRow(int y, double[] out) {
+            Arrays.fill(out, 0.0);
             double layerScale = SCALE;
             double layerWeight = 1.0;
 
             for (int o = 0; o < OCTAVES; o++) {
                 // Calculate single layer/octave of simplex noise, then add it to total noise
-                noiseTotal += noise(x * layerScale, y * layerScale) * layerWeight;
+                double yin = y * layerScale;
+                for (int x = 0; x < out.length; x++) out[x] += noise(x * layerScale, yin) * layerWeight;
 
                 // Increase variables with each incrementing octave
                 layerScale *= 2.0;
                 layerWeight *= ROUGHNESS;
             }
 
-            // noiseTotal is in range -1.0 < noiseTotal < 1.0; has to be corrected to be in 0.0 < noiseTotal < 1.0 range
-            noiseTotal += 1.0;
-            noiseTotal /= 2.0;
-
-            return noiseTotal;
+            // Noise is in range -1.0 < noise < 1.0; has to be corrected to be in 0.0 < noise < 1.0 range
+            for (int x = 0; x < out.length; x++) out[x] = (out[x] + 1.0) / 2.0;
         }
 
         /*
@@ -132,24 +167,18 @@ public class TerrainGenerator {
             See his paper for a commented version: http://staffwww.itn.liu.se/~stegu/simplexnoise/simplexnoise.pdf
         */
 
-        private int fastFloor(double x) {
+        private static int fastFloor(double x) {
             return x > 0 ? (int) x : (int) x - 1;
         }
 
-        private double dot(int[] g, double x, double y) {
-            return g[0] * x + g[1] * y;
-        }
-
         private double noise(double xin, double yin) {
             double n0;
             double n1;
             double n2;
 
-            final double F2 = 0.5 * (Math.sqrt(3.0) - 1.0);
             double s = (xin + yin) * F2;
             int i = fastFloor(xin + s);
             int j = fastFloor(yin + s);
-            final double G2 = (3.0 - Math.sqrt(3.0)) / 6.0;
             double t = (i + j) * G2;
             double x0 = xin - (i - t);
             double y0 = yin - (j - t);
@@ -168,26 +197,26 @@ public class TerrainGenerator {
             double y2 = y0 - 1.0 + 2.0 * G2;
             int ii = i & 255;
             int jj = j & 255;
-            int gi0 = perm[ii + perm[jj]] % 12;
-            int gi1 = perm[ii + i1 + perm[jj + j1]] % 12;
-            int gi2 = perm[ii + 1 + perm[jj + 1]] % 12;
+            int gi0 = permMod12[ii + perm[jj]];
+            int gi1 = permMod12[ii + i1 + perm[jj + j1]];
+            int gi2 = permMod12[ii + 1 + perm[jj + 1]];
             double t0 = 0.5 - x0 * x0 - y0 * y0;
             if (t0 < 0) n0 = 0.0;
             else {
                 t0 *= t0;
-                n0 = t0 * t0 * dot(grad3[gi0], x0, y0);
+                n0 = t0 * t0 * (GRAD_X[gi0] * x0 + GRAD_Y[gi0] * y0);
             }
             double t1 = 0.5 - x1 * x1 - y1 * y1;
             if (t1 < 0) n1 = 0.0;
             else {
                 t1 *= t1;
-                n1 = t1 * t1 * dot(grad3[gi1], x1, y1);
+                n1 = t1 * t1 * (GRAD_X[gi1] * x1 + GRAD_Y[gi1] * y1);
             }
             double t2 = 0.5 - x2 * x2 - y2 * y2;
             if (t2 < 0) n2 = 0.0;
             else {
                 t2 *= t2;
-                n2 = t2 * t2 * dot(grad3[gi2], x2, y2);
+                n2 = t2 * t2 * (GRAD_X[gi2] * x2 + GRAD_Y[gi2] * y2);
             }
             return 70.0 * (n0 + n1 + n2);
         }
@@ -0,0 +1,121 @@
+package xyz.angm.game.world;
+
+import com.badlogic.gdx.graphics.Camera;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntIntMap;
+import xyz.angm.game.Defactory;
+
+/** Renders the terrain around the camera from the texture atlas, one textured quad per tile, using a {@link SpriteCache}.
+ * The terrain is split into square chunks of tiles, each a cache of its own; chunks are only built once they come near
+ * the visible area, spreading the cost over frames, and only visible chunks are drawn.
+ * Chunks are never evicted: A SpriteCache can not free single caches, and the quads of a whole world only take a few MB.
+ * All methods must be called on the OpenGL thread. */
+class TerrainStreamer implements Disposable {
+
+    /** The width and height of a chunk, in tiles. */
+    private static final int CHUNK_SIZE = 32;
+    /** The amount of chunks around the visible area built ahead of time. */
+    private static final int LOAD_MARGIN = 1;
+    /** The maximum amount of chunks built ahead of time per frame, to spread the cost over frames. */
+    private static final int MAX_BUILDS_PER_FRAME = 2;
+    /** The size of a terrain texture, in texels. All of them are square. */
+    private static final int TEXTURE_SIZE = 32;
+    /** The amount of texels of a terrain texture covering a single tile; textures repeat every few tiles. */
+    private static final int TEXELS_PER_TILE = 16;
+    /** The amount of tiles covered by a single repetition of a terrain texture. */
+    private static final int TILES_PER_TEXTURE = TEXTURE_SIZE / TEXELS_PER_TILE;
+
+    private final Terrain terrain;
+    private final int chunksX;
+    private final int chunksY;
+    /** The cache ID of every built chunk, by chunk index. */
+    private final IntIntMap chunks = new IntIntMap();
+    /** The parts of the terrain textures, by terrain type and then position of the tile within the repeating texture.
+     * All of them are in the texture atlas, so a chunk is drawn in a single call. */
+    private final TextureRegion[][] regions = new TextureRegion[Terrain.TYPES][TILES_PER_TEXTURE * TILES_PER_TEXTURE];
+    /** Created on first draw, as worlds that are never drawn don't need it. */
+    private SpriteCache cache;
+
+    /** Create a new streamer. Does not build any chunks until drawn.
+     * @param terrain The terrain to render. */
+    TerrainStreamer(Terrain terrain) {
+        this.terrain = terrain;
+        chunksX = (terrain.getWidth() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        chunksY = (terrain.getHeight() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    /** Draws all chunks in the visible area, building chunks as needed.
+     * Uses its own shader; must not be called between begin and end of a batch.
+     * @param camera The camera to draw with.
+     * @param visible The area visible to the camera, in world units. */
+    void draw(Camera camera, Rectangle visible) {
+        if (cache == null) {
+            createRegions();
+            cache = new SpriteCache(terrain.getWidth() * terrain.getHeight(), false);
+        }
+
+        // World units are tiles
+        int fromX = Math.max((int) Math.floor(visible.x / CHUNK_SIZE), 0);
+        int toX = Math.min((int) Math.floor((visible.x + visible.width) / CHUNK_SIZE), chunksX - 1);
+        int fromY = Math.max((int) Math.floor(visible.y / CHUNK_SIZE), 0);
+        int toY = Math.min((int) Math.floor((visible.y + visible.height) / CHUNK_SIZE), chunksY - 1);
+
+        int builds = 0;
+        for (int y = Math.max(fromY - LOAD_MARGIN, 0); y <= Math.min(toY + LOAD_MARGIN, chunksY - 1); y++) {
+            for (int x = Math.max(fromX - LOAD_MARGIN, 0); x <= Math.min(toX + LOAD_MARGIN, chunksX - 1); x++) {
+                if (chunks.containsKey(y * chunksX + x)) continue;
+                boolean visibleChunk = x >= fromX && x <= toX && y >= fromY && y <= toY;
+                // Visible chunks are always built, others only if there is time left this frame
+                if (!visibleChunk && builds++ >= MAX_BUILDS_PER_FRAME) continue;
+                chunks.put(y * chunksX + x, buildChunk(x, y));
+            }
+        }
+
+        cache.setProjectionMatrix(camera.combined);
+        cache.begin();
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) cache.draw(chunks.get(y * chunksX + x, -1));
+        }
+        cache.end();
+    }
+
+    // Adds a cache for a chunk, containing a quad for every tile of it. Returns its ID
+    private int buildChunk(int chunkX, int chunkY) {
+        int lastX = Math.min((chunkX + 1) * CHUNK_SIZE, terrain.getWidth());
+        int lastY = Math.min((chunkY + 1) * CHUNK_SIZE, terrain.getHeight());
+
+        cache.beginCache();
+        for (int y = chunkY * CHUNK_SIZE; y < lastY; y++) {
+            for (int x = chunkX * CHUNK_SIZE; x < lastX; x++) {
+                int repetition = (y % TILES_PER_TEXTURE) * TILES_PER_TEXTURE + (x % TILES_PER_TEXTURE);
+                cache.add(regions[terrain.getTile(x, y)][repetition], x, y, 1f, 1f);
+            }
+        }
+        return cache.endCache();
+    }
+
+    // Splits all terrain textures in the texture atlas into the parts covering a single tile
+    private void createRegions() {
+        TextureRegion[] textures = new TextureRegion[Terrain.TYPES];
+        for (int i = 0; i < Terrain.GRASS_VARIANTS; i++) textures[i] = Defactory.getTextureRegion("map/grass" + i);
+        textures[Terrain.STONE] = Defactory.getTextureRegion("map/stone");
+        textures[Terrain.STONE_TILE] = Defactory.getTextureRegion("map/stoneTile");
+
+        for (int type = 0; type < Terrain.TYPES; type++) {
+            for (int i = 0; i < TILES_PER_TEXTURE * TILES_PER_TEXTURE; i++) {
+                int x = (i % TILES_PER_TEXTURE) * TEXELS_PER_TILE;
+                // Texture rows count from the top; tile rows from the bottom
+                int y = (TILES_PER_TEXTURE - 1 - i / TILES_PER_TEXTURE) * TEXELS_PER_TILE;
+                regions[type][i] = new TextureRegion(textures[type], x, y, TEXELS_PER_TILE, TEXELS_PER_TILE);
+            }
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (cache != null) cache.dispose();
+    }
+}
@@ -0,0 +1,25 @@
+package xyz.angm.game.world;
+
+/** The type of the terrain of a tile. Grass comes in a few variants, which only differ in looks. */
+@SuppressWarnings("JavaDoc")
+public enum TerrainType {
+
+    GRASS,
+    STONE,
+    STONE_TILE;
+
+    /** The type of every tile value of {@link Terrain}. */
+    private static final TerrainType[] OF_TILE = new TerrainType[Terrain.TYPES];
+
+    static {
+        for (int i = 0; i < Terrain.GRASS_VARIANTS; i++) OF_TILE[i] = GRASS;
+        OF_TILE[Terrain.STONE] = STONE;
+        OF_TILE[Terrain.STONE_TILE] = STONE_TILE;
+    }
+
+    /** @param tile The tile value, as stored by {@link Terrain}.
+     * @return The type of the tile. */
+    static TerrainType of(byte tile) {
+        return OF_TILE[tile];
+    }
+}
@@ -0,0 +1,117 @@
+package xyz.angm.game.world;
+
+import box2dLight.Light;
+import box2dLight.PointLight;
+import box2dLight.RayHandler;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
+
+/** The lights of all torches in a world. Torches and the blocks around them never move, so their lights are static:
+ * Their rays are cast once and the resulting light mesh is kept, instead of being recast against every body every frame.
+ * Lights are kept in square chunks of tiles. Block changes only record the chunk they happened in; once per frame,
+ * the lights of torches within range of any changed chunk are marked to be recast. A batch of edits thus causes a
+ * single light update, no matter its size. The player light and the sun are not part of this and stay dynamic. */
+class TorchLights {
+
+    /** Color of the light source of BlockType.TORCH blocks. */
+    private static final Color TORCH_LIGHT_COLOR = new Color(0xFF8D0099);
+    /** The distance lit by a torch, in tiles. */
+    private static final float TORCH_LIGHT_DISTANCE = 10f;
+    /** The amount of rays of a torch light. */
+    private static final int TORCH_LIGHT_RAYS = 16;
+    /** The width and height of a chunk, in tiles. At least the light distance, so a change only affects adjacent chunks. */
+    private static final int CHUNK_SIZE = 16;
+
+    private final RayHandler rayHandler;
+    /** The filter applied to the rays of torch lights; bits of the fixtures hit. */
+    private final short rayMask;
+    /** All torch lights, by chunk key. */
+    private final IntMap<Array<Light>> chunks = new IntMap<>();
+    /** Keys of all chunks with block changes since the last update. */
+    private final IntSet changedChunks = new IntSet();
+
+    /** Create a new light layer.
+     * @param rayHandler The ray handler to add lights to.
+     * @param rayMask The category bits of fixtures casting shadows for torches; should only contain fixtures that never move,
+     *                since a shadow is only updated when a block changes. */
+    TorchLights(RayHandler rayHandler, short rayMask) {
+        this.rayHandler = rayHandler;
+        this.rayMask = rayMask;
+    }
+
+    /** Adds the light of a torch.
+     * @param position The position of the torch.
+     * @return The light added. */
+    Light torchAdded(TileVector position) {
+        // Lights are positioned directly instead of attached to the body; attached lights follow it every update
+        PointLight light = new PointLight(rayHandler, TORCH_LIGHT_RAYS, TORCH_LIGHT_COLOR, TORCH_LIGHT_DISTANCE,
+                position.getX() + 0.5f, position.getY() + 0.5f);
+        light.setStaticLight(true);
+        light.setContactFilter((short) -1, (short) 0, rayMask);
+
+        int key = getChunkKey(getChunk(position.getX()), getChunk(position.getY()));
+        Array<Light> chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Array<>(false, 8);
+            chunks.put(key, chunk);
+        }
+        chunk.add(light);
+        return light;
+    }
+
+    /** Removes the light of a torch.
+     * @param position The position of the torch.
+     * @param light The light of the torch, as returned by {@link #torchAdded(TileVector)}. */
+    void torchRemoved(TileVector position, Light light) {
+        Array<Light> chunk = chunks.get(getChunkKey(getChunk(position.getX()), getChunk(position.getY())));
+        if (chunk != null) chunk.removeValue(light, true);
+        light.remove(true);
+    }
+
+    /** Call when a block was placed or removed. All torch lights in range will be recast on the next update.
+     * @param position The position of the block changed. */
+    void blockChanged(TileVector position) {
+        changedChunks.add(getChunkKey(getChunk(position.getX()), getChunk(position.getY())));
+    }
+
+    /** Marks all torch lights in range of a chunk with block changes to be recast. Call once per frame, before the lights are updated.
+     * Lights are marked if they reach any part of a changed chunk, which may include some just out of range of the changes. */
+    void update() {
+        if (changedChunks.size == 0) return;
+        IntSet.IntSetIterator changed = changedChunks.iterator();
+        while (changed.hasNext) {
+            int key = changed.next();
+            int chunkX = key & 0xFFFF;
+            int chunkY = key >>> 16;
+            // The chunks are at least as large as the light distance, so only adjacent chunks can contain lights in range
+            for (int cY = Math.max(chunkY - 1, 0); cY <= chunkY + 1; cY++) {
+                for (int cX = Math.max(chunkX - 1, 0); cX <= chunkX + 1; cX++) {
+                    Array<Light> chunk = chunks.get(getChunkKey(cX, cY));
+                    if (chunk == null) continue;
+                    for (Light light : chunk) {
+                        if (reaches(light, chunkX, chunkY)) light.setStaticLight(true); // Marks the light for a recast
+                    }
+                }
+            }
+        }
+        changedChunks.clear();
+    }
+
+    // Does the light reach any tile of the chunk?
+    private static boolean reaches(Light light, int chunkX, int chunkY) {
+        float dX = Math.max(Math.max(chunkX * CHUNK_SIZE - light.getX(), light.getX() - (chunkX + 1) * CHUNK_SIZE), 0f);
+        float dY = Math.max(Math.max(chunkY * CHUNK_SIZE - light.getY(), light.getY() - (chunkY + 1) * CHUNK_SIZE), 0f);
+        return dX * dX + dY * dY <= TORCH_LIGHT_DISTANCE * TORCH_LIGHT_DISTANCE;
+    }
+
+    private static int getChunk(int tile) {
+        return tile / CHUNK_SIZE;
+    }
+
+    // Chunks are keyed by both of their coordinates; blocks are never placed at negative or very large positions
+    private static int getChunkKey(int chunkX, int chunkY) {
+        return chunkY << 16 | chunkX;
+    }
+}
@@ -1,19 +1,31 @@
 package xyz.angm.game.world;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.math.Vector3;
-import com.badlogic.gdx.scenes.scene2d.Group;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.utils.Array;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.ObjectSet;
 import com.badlogic.gdx.utils.viewport.FitViewport;
 import xyz.angm.game.Defactory;
+import xyz.angm.game.network.BlockEditBatch;
+import xyz.angm.game.network.BlockStateBatch;
 import xyz.angm.game.network.Client;
+import xyz.angm.game.network.EntitySnapshot;
+import xyz.angm.game.network.EntitySnapshotPublisher;
 import xyz.angm.game.network.NetworkInterface;
+import xyz.angm.game.network.SpawnConfirmation;
+import xyz.angm.game.network.SpawnRejection;
+import xyz.angm.game.network.SpawnRequest;
+import xyz.angm.game.network.WorldStateChunk;
+import xyz.angm.game.network.WorldStateHeader;
 import xyz.angm.game.ui.BlockPlacementPreview;
 import xyz.angm.game.world.blocks.Block;
+import xyz.angm.game.world.blocks.BlockRenderer;
 import xyz.angm.game.world.blocks.BlockTickRunner;
 import xyz.angm.game.world.blocks.BlockType;
 import xyz.angm.game.world.blocks.Material;
@@ -22,8 +34,9 @@ import xyz.angm.game.world.entities.Bullet;
 import xyz.angm.game.world.entities.Item;
 import xyz.angm.game.world.entities.Player;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
 import static xyz.angm.game.world.TerrainGenerator.WORLD_SIZE_MULTIPLICATOR;
@@ -35,41 +48,74 @@ public class World implements Disposable {
     public static final float WORLD_VIEWPORT_WIDTH = 120f;
     /** The height of the world viewport. Should be in meters due to the physics system. */
     public static final float WORLD_VIEWPORT_HEIGHT = 67.5f;
+    /** The zoom of the camera when the world is created. */
+    private static final float INITIAL_ZOOM = 0.2f;
     /** The frequency at which blocks update; ie they execute their action. Unit is milliseconds. */
     private static final long BLOCK_TICK_FREQ = 1000;
+    /** The time a tick may take at 60 FPS, in nanoseconds. */
+    private static final float TICK_BUDGET_NANOS = 1e9f / 60f;
+    /** The weight of the last tick in the load average. Smooths out single slow ticks, eg caused by GC. */
+    private static final float LOAD_SMOOTHING = 0.1f;
 
     /** Seed used for generating terrain. See {@link TerrainGenerator}. */
     public final long seed;
     /** Map containing the map. (Thanks, Sherlock.) */
     public final WorldMap map;
-    private final NetworkInterface netIface = ((Defactory) Gdx.app.getApplicationListener()).getNetworkInterface();
+    private final NetworkInterface netIface;
     private final Player player = new Player();
     private final Array<Item> items = new Array<>(false, 16);
     private final Array<Beast> beasts = new Array<>(true, 16);
     private final Array<Vector2> beastPositions = new Array<>(true, 16);
     private final Array<Bullet> bullets = new Array<>(false, 32);
-    private final ScheduledExecutorService bulletTimer = Executors.newSingleThreadScheduledExecutor();
     private final PhysicsEngine physics;
+    private final BlockEditBatcher editBatcher = new BlockEditBatcher();
+    private final BlockStateReplicator stateReplicator = new BlockStateReplicator();
+    private final SnapshotBuffer snapshots = new SnapshotBuffer();
+    private final EntitySnapshotPublisher snapshotPublisher = new EntitySnapshotPublisher();
+    private final SpawnPredictor spawnPredictor = new SpawnPredictor();
+    private final boolean active;
+    /** Commands posted by other threads, run on the thread acting the world at the start of the next tick.
+     * Lock-free; any amount of threads may post while the world's thread drains it. */
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private ScheduledFuture<?> blockTicker;
+    private volatile float load = 0f;
     private int beastsLeft = 0;
+    private boolean waveActive = false;
+    /** The reason of the last spawn rejection not yet shown to the spectator; null if none. */
+    private SpawnRejection.Reason spawnRejection;
+    private int nextBeastId = 0;
+    /** Tiles edited by live updates while a world state transfer is in progress. State chunks must not overwrite these. */
+    private final ObjectSet<TileVector> stateSyncEditedTiles = new ObjectSet<>();
+    private int stateSyncBlocksTotal = 0;
+    private int stateSyncBlocksReceived = 0;
+    /** Block state records received while a world state transfer is in progress; applied once it is done, as chunks carry older state. */
+    private final IntArray stateSyncPendingStates = new IntArray();
 
     private final Stage stage = new Stage(new FitViewport(WORLD_VIEWPORT_WIDTH, WORLD_VIEWPORT_HEIGHT));
     private final Vector2 cameraPosition;
-    private final Group blockGroup = new Group();
+    private final BlockRenderer blockRenderer = new BlockRenderer();
     private final BlockPlacementPreview blockPreview = new BlockPlacementPreview();
     private final Vector2 tmpV = new Vector2();
+    /** The area visible to the camera; the culling area of the stage. */
+    private final Rectangle visibleArea = new Rectangle();
 
     /** Constructs a new world along with it's map.
-     * @param generator The generator which is done loading.
+     * Needs to be called on the OpenGL thread.
+     * @param generator The generator of the terrain.
+     * @param netIface The network interface to sync the world with.
      * @param active If false, background activity is heavily restricted and the world won't generate a CORE. Used on the client. */
-    public World(TerrainGenerator generator, boolean active) {
+    public World(TerrainGenerator generator, NetworkInterface netIface, boolean active) {
         this.seed = generator.seed;
+        this.netIface = netIface;
+        this.active = active;
         map = new WorldMap(generator);
         physics = new PhysicsEngine(this, active);
 
         if (active) {
-            // Schedule the block ticker to run every BLOCK_TICK_FREQ
-            Executors.newSingleThreadScheduledExecutor()
-                    .scheduleAtFixedRate(new BlockTickRunner(this), BLOCK_TICK_FREQ, BLOCK_TICK_FREQ, TimeUnit.MILLISECONDS);
+            // Schedule the block ticker to run every BLOCK_TICK_FREQ; it runs as a command since it changes the world
+            BlockTickRunner blockTickRunner = new BlockTickRunner(this);
+            blockTicker = Defactory.executor
+                    .scheduleAtFixedRate(() -> postRunnable(blockTickRunner), BLOCK_TICK_FREQ, BLOCK_TICK_FREQ, TimeUnit.MILLISECONDS);
             cameraPosition = player.getPosition(); // Lock camera on player
         } else {
             // Free the camera from the player. Allows moving it independently from the player for spectators.
@@ -78,22 +124,63 @@ public class World implements Disposable {
 
         addBlock(player.getCore());
         stage.addActor(map);
-        stage.addActor(blockGroup);
+        stage.addActor(blockRenderer);
+        blockRenderer.setSize(map.getWidth(), map.getHeight()); // Never culled as a whole; it culls by chunk
+        stage.getRoot().setCullingArea(visibleArea);
         player.registerToStage(stage);
         stage.addActor(blockPreview);
-        ((OrthographicCamera) stage.getCamera()).zoom = 0.2f;
+        ((OrthographicCamera) stage.getCamera()).zoom = INITIAL_ZOOM;
     }
 
     /** Call on the client when the wave status changed, eg on wave start or end.
      * @param status The new status. */
     public void waveStatusChanged(Client.Status status) {
+        waveActive = status == Client.Status.WAVE_START;
         if (status == Client.Status.WAVE_START) beastsLeft = 3 + player.getBeastWave();
         else if (status == Client.Status.WAVE_END) beastsLeft = 0;
     }
 
+    /** Call on the client when the server spawned a beast requested by this spectator. Removes the predicted beast;
+     * the spawned beast was received before.
+     * @param confirmation The confirmation received. */
+    public void spawnConfirmed(SpawnConfirmation confirmation) {
+        spawnPredictor.answered(confirmation.getRequestId());
+    }
+
+    /** Call on the client when the server rejected a beast spawn requested by this spectator.
+     * The predicted beast is removed, and the beast is given back as long as the wave is still active.
+     * Nothing is given back if the prediction already expired, as that gave the beast back already.
+     * @param rejection The rejection received. */
+    public void spawnRejected(SpawnRejection rejection) {
+        if (spawnPredictor.answered(rejection.getRequestId())) refundBeasts(1);
+        spawnRejection = rejection.getReason();
+    }
+
+    // Gives beasts back to the spectator, as long as the wave is still active
+    private void refundBeasts(int amount) {
+        if (waveActive) beastsLeft += amount;
+    }
+
+    /** Returns the reason of the last spawn rejection and clears it; so that every rejection is only shown once.
+     * @return The reason, or null if there was no rejection since the last call. */
+    public SpawnRejection.Reason takeSpawnRejection() {
+        SpawnRejection.Reason reason = spawnRejection;
+        spawnRejection = null;
+        return reason;
+    }
+
     /** Should be called every frame on the server so the world can update.
+     * Always needs to be called from the same thread, or at least never concurrently.
      * @param delta Time since last call to this method in seconds. */
     public void act(float delta) {
+        long startTime = System.nanoTime();
+        Runnable runnable;
+        while ((runnable = commands.poll()) != null) runnable.run();
+
+        if (!active) {
+            snapshots.apply(player, beastPositions);
+            refundBeasts(spawnPredictor.removeExpired()); // Never answered; given back like a rejection
+        }
         physics.act(delta);
         player.act(delta);
         stage.act(delta);
@@ -101,15 +188,50 @@ public class World implements Disposable {
         items.forEach(item -> item.act(delta));
         beasts.forEach(beast -> beast.act(delta));
         bullets.forEach(bullet -> bullet.act(delta));
+
+        if (active) {
+            editBatcher.flush(netIface);
+            stateReplicator.flush(map, netIface);
+            snapshotPublisher.publish(player, beastPositions);
+        }
+        float tickLoad = (System.nanoTime() - startTime) / TICK_BUDGET_NANOS;
+        load += (tickLoad - load) * LOAD_SMOOTHING;
     }
 
-    /** Should be called every frame when the world should render itself and all components. */
+    /** Run the runnable on the thread acting the world, at the start of the next tick.
+     * Neither the world nor Box2D are thread-safe; all other threads must use this to change the world.
+     * They must not read it directly either, but only copies made on the world's thread: the entity snapshots of
+     * {@link #getSnapshotPublisher()}, and the block records of world state transfers, which are taken in a runnable.
+     * The only exceptions are the seed, which is final, and {@link #getLoad()}, which is volatile.
+     * Runnables are run in the order they were posted.
+     * @param runnable The runnable to run. */
+    public void postRunnable(Runnable runnable) {
+        commands.add(runnable);
+    }
+
+    /** Returns the time ticks take on average, relative to the budget of a tick at 60 FPS. Above 1 is overloaded.
+     * The average is weighted towards recent ticks. */
+    public float getLoad() {
+        return load;
+    }
+
+    /** Should be called every frame when the world should render itself and all components.
+     * Only actors intersecting the area visible to the camera are drawn; the map and blocks cull by chunk themselves. */
     public void render() {
         updateCamera();
+        OrthographicCamera camera = (OrthographicCamera) stage.getCamera();
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        visibleArea.set(camera.position.x - width / 2f, camera.position.y - height / 2f, width, height);
         stage.draw();
         physics.render((OrthographicCamera) stage.getCamera());
     }
 
+    /** @return The batch the world is drawn with. Used for metrics. */
+    public SpriteBatch getBatch() {
+        return (SpriteBatch) stage.getBatch();
+    }
+
     /** Moves the camera. Will throw on server; player should not be able to move the camera.
      * @param v The vector added to the camera position. */
     public void moveCamera(Vector2 v) {
@@ -135,7 +257,8 @@ public class World implements Disposable {
                 Math.max(0.05f, Math.min(WORLD_SIZE_MULTIPLICATOR, ((OrthographicCamera) stage.getCamera()).zoom + zoom));
     }
 
-    /** Should be called when the player clicked the map/screen. Will place or break a block and sync to clients.
+    /** Should be called when the player clicked the map/screen. Will place or break a block.
+     * Edits are synced to clients once per tick, see {@link BlockEditBatcher}.
      * @param x The x position of the click in screen coordinates.
      * @param y The y position of the click in screen coordinates.
      * @param rightClick If the click was a right click. Left click assumed if false. */
@@ -144,18 +267,16 @@ public class World implements Disposable {
         stage.screenToStageCoordinates(tmpV);
         TileVector position = new TileVector().set(tmpV);
 
-        if (rightClick) {
-            removeBlock(position);
-            netIface.send(position);
-        } else if (getPlayer().getBlockSelected() != -1) {
+        if (rightClick) removeBlock(position);
+        else if (getPlayer().getBlockSelected() != -1 && map.getBlock(position) == null) {
+            // Dragging calls this repeatedly on the same tile; only build on empty tiles to not waste material
             Block block = getPlayer().buildBlock(position);
-            if (block == null) return;
-            addBlock(block);
-            netIface.send(block);
+            if (block != null) addBlock(block);
         }
     }
 
     /** Should be called when a spectator clicked the map/screen. Will tell the server to spawn a beast at the clicked position.
+     * The beast is shown right away as a prediction, until the server answered.
      * @param x The x position of the click in screen coordinates.
      * @param y The y position of the click in screen coordinates. */
     public void requestBeastSpawn(int x, int y) {
@@ -166,30 +287,122 @@ public class World implements Disposable {
 
         // Prevent spawning a beast within the middle of the screen, beasts could be spawned unfairly otherwise
         if (!position.isInBounds((int) (WORLD_VIEWPORT_WIDTH / 3), (int) ((WORLD_VIEWPORT_WIDTH / 3) * 2))) {
-            netIface.send(position);
+            netIface.send(new SpawnRequest(spawnPredictor.predict(position, stage), position));
             beastsLeft--;
         }
     }
 
+    /** Call on the client when the server started transferring its world state.
+     * Replaces all beasts with the ones of the server and applies the wave status.
+     * @param header The header of the transfer. */
+    public void stateSyncStarted(WorldStateHeader header) {
+        // Any beasts received before the header are part of it as well
+        beasts.forEach(beast -> {
+            beast.dispose();
+            physics.entityRemoved(beast);
+        });
+        beasts.clear();
+        beastPositions.clear();
+        for (Beast beast : header.getBeasts()) addBeast(beast);
+
+        if (header.isWaveActive()) waveStatusChanged(Client.Status.WAVE_START);
+        stateSyncEditedTiles.clear();
+        stateSyncPendingStates.clear();
+        stateSyncBlocksTotal = header.getBlockCount();
+        stateSyncBlocksReceived = 0;
+    }
+
+    /** Call on the client when a chunk of the world state was received.
+     * Blocks on tiles that were edited since the transfer started are skipped, since the edit is newer.
+     * @param chunk The chunk received. */
+    public void stateChunkReceived(WorldStateChunk chunk) {
+        for (int i = 0; i < chunk.getBlockCount(); i++) {
+            Block block = chunk.createBlock(i);
+            if (!stateSyncEditedTiles.contains(block.getPosition())) addBlock(block);
+        }
+        stateSyncBlocksReceived += chunk.getBlockCount();
+        if (!isStateSyncing()) {
+            stateSyncEditedTiles.clear();
+            applyBlockStates(stateSyncPendingStates.items, stateSyncPendingStates.size);
+            stateSyncPendingStates.clear();
+        }
+    }
+
+    /** Returns the progress of the world state transfer in range 0.0-1.0; 1.0 if none is in progress. */
+    public float getStateSyncProgress() {
+        return isStateSyncing() ? (float) stateSyncBlocksReceived / stateSyncBlocksTotal : 1f;
+    }
+
+    private boolean isStateSyncing() {
+        return stateSyncBlocksReceived < stateSyncBlocksTotal;
+    }
+
     /** Adds the block to the world.
      * @param block The block to add. */
     public void addBlock(Block block) {
+        if (isStateSyncing()) stateSyncEditedTiles.add(block.getPosition());
         if (map.addBlock(block)) { // Return value of false indicates a block was already present
-            block.registerToGroup(blockGroup);
+            block.registerToRenderer(blockRenderer);
             physics.blockPlaced(block);
+            if (active) editBatcher.blockPlaced(block);
         }
     }
 
     /** Removes a block.
      * @param position The position of the block to remove. */
     public void removeBlock(TileVector position) {
+        if (isStateSyncing()) stateSyncEditedTiles.add(new TileVector().set(position));
         Block block = map.getBlock(position);
         if (block != null && block.getProperties().type != BlockType.CORE) {
             map.removeBlock(position);
             physics.blockRemoved(position);
+            if (active) editBatcher.blockRemoved(position);
         }
     }
 
+    /** Call on the client when a batch of block edits was received. Removals are applied before placements.
+     * Only the map and the physics bodies are changed per block; the block renderer and the torch lights just record
+     * the chunks changed, and update them once when the next frame is drawn.
+     * @param batch The batch to apply. */
+    public void applyEditBatch(BlockEditBatch batch) {
+        TileVector position = new TileVector();
+        int[] removed = batch.getRemoved();
+        for (int i = 0; i < removed.length; i += BlockEditBatch.REMOVED_RUN_SIZE) {
+            for (int x = removed[i]; x < removed[i] + removed[i + 2]; x++) removeBlock(position.set(x, removed[i + 1]));
+        }
+
+        int[] placed = batch.getPlaced();
+        for (int i = 0; i < placed.length; i += BlockEditBatch.PLACED_RUN_SIZE) {
+            Block.Direction direction = Block.Direction.values()[placed[i + 4]];
+            for (int x = placed[i]; x < placed[i] + placed[i + 2]; x++) {
+                addBlock(new Block(position.set(x, placed[i + 1]), placed[i + 3], direction));
+            }
+        }
+    }
+
+    /** Call on the client when a batch of block state changes was received.
+     * Deferred until a world state transfer in progress is done.
+     * @param batch The batch to apply. */
+    public void applyStateBatch(BlockStateBatch batch) {
+        if (isStateSyncing()) stateSyncPendingStates.addAll(batch.getRecords());
+        else applyBlockStates(batch.getRecords(), batch.getRecords().length);
+    }
+
+    // Applies block state records, see BlockStateBatch. Records of blocks that do not exist are skipped
+    private void applyBlockStates(int[] records, int length) {
+        TileVector position = new TileVector();
+        for (int i = 0; i < length; i += BlockStateBatch.RECORD_SIZE) {
+            Block block = map.getBlock(position.set(records[i], records[i + 1]));
+            if (block != null) block.setField(records[i + 2], records[i + 3]);
+        }
+    }
+
+    /** Call on the server after changing the state of a block, for example its health.
+     * @param block The block changed. */
+    public void blockStateChanged(Block block) {
+        if (active) stateReplicator.blockChanged(block);
+    }
+
     private void updateCamera() {
         final float zoom = ((OrthographicCamera) stage.getCamera()).zoom;
         // These values determine the min/max positions of the camera. These prevent the camera from displaying out-of-bounds areas.
@@ -239,11 +452,13 @@ public class World implements Disposable {
     }
 
     /** Spawn a beast and sync to clients.
-     * @param position The position of the beast. */
-    public void spawnBeast(TileVector position) {
-        Beast beast = new Beast(new TileVector().set(position));
+     * @param position The position of the beast.
+     * @return The beast spawned. */
+    public Beast spawnBeast(TileVector position) {
+        Beast beast = new Beast(new TileVector().set(position), nextBeastId++);
         addBeast(beast);
         netIface.send(beast);
+        return beast;
     }
 
     /** Add a beast to the world.
@@ -256,14 +471,23 @@ public class World implements Disposable {
     }
 
     /** Remove a beast from the world.
-     * @param beast The beast to get rid of. */
+     * @param beast The beast to get rid of. On clients, this is the copy received from the server; it is matched by ID. */
     public void removeBeast(Beast beast) {
+        int index = indexOfBeast(beast.getId());
+        if (index == -1) return; // Already removed
+        beast = beasts.removeIndex(index);
+        beastPositions.removeIndex(index);
         beast.removeHealth(999); // Make sure its dead so clients will remove it as well
         beast.dispose();
-        beasts.removeValue(beast, true);
-        beastPositions.removeValue(beast.getPosition(), true);
         physics.entityRemoved(beast);
-        netIface.send(beast);
+        if (active) netIface.send(beast);
+    }
+
+    private int indexOfBeast(int id) {
+        for (int i = 0; i < beasts.size; i++) {
+            if (beasts.get(i).getId() == id) return i;
+        }
+        return -1;
     }
 
     /** Spawn a new bullet shot by a turret.
@@ -276,7 +500,7 @@ public class World implements Disposable {
         bullets.add(bullet);
 
         // Remove the bullet again after a delay
-        bulletTimer.schedule(() -> removeBullet(bullet), 30, TimeUnit.SECONDS);
+        Defactory.executor.schedule(() -> postRunnable(() -> removeBullet(bullet)), 30, TimeUnit.SECONDS);
     }
 
     /** Remove a bullet. Called when it hits a beast, or after 10sec of being active.
@@ -287,12 +511,16 @@ public class World implements Disposable {
         bullet.dispose();
     }
 
-    /** Update beast positions.
-     * @param positions The array to copy positions from. */
-    public void updateBeastPositions(Array<Vector2> positions) {
-        for (int i = 0; i < beastPositions.size; i++) {
-            beastPositions.get(i).set(positions.get(i));
-        }
+    /** Call on the client when an entity snapshot was received. It will be interpolated towards over the next frames.
+     * @param snapshot The snapshot received. */
+    public void snapshotReceived(EntitySnapshot snapshot) {
+        snapshots.add(snapshot);
+    }
+
+    /** Returns the publisher of entity snapshots, published at the end of every tick on the server.
+     * The only safe way to read the state of moving entities from other threads. */
+    public EntitySnapshotPublisher getSnapshotPublisher() {
+        return snapshotPublisher;
     }
 
     public Array<Beast> getBeasts() {
@@ -307,6 +535,14 @@ public class World implements Disposable {
         return player;
     }
 
+    /** Get the terrain of a tile. See {@link WorldMap#getTerrain(int, int)}.
+     * @param x The column of the tile.
+     * @param y The row of the tile.
+     * @return The type of the tile, or null if it is outside of the world. */
+    public TerrainType getTerrain(int x, int y) {
+        return map.getTerrain(x, y);
+    }
+
     /** Returns the amount of beasts allowed to be spawned by this spectator at the moment. */
     public int getBeastsLeft() {
         return beastsLeft;
@@ -314,6 +550,9 @@ public class World implements Disposable {
 
     @Override
     public void dispose() {
+        if (blockTicker != null) blockTicker.cancel(false);
         stage.dispose();
+        map.dispose();
+        blockRenderer.dispose();
     }
 }
@@ -1,9 +1,8 @@
 package xyz.angm.game.world;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.scenes.scene2d.ui.Image;
-import com.badlogic.gdx.scenes.scene2d.utils.TextureRegionDrawable;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Disposable;
 import com.badlogic.gdx.utils.ObjectMap;
 import com.badlogic.gdx.utils.OrderedMap;
 import xyz.angm.game.world.blocks.Block;
@@ -15,24 +14,44 @@ import static xyz.angm.game.world.World.WORLD_VIEWPORT_HEIGHT;
 import static xyz.angm.game.world.World.WORLD_VIEWPORT_WIDTH;
 
 /** A class containing all map data:
- * - Texture data for rendering the map
+ * - The terrain, queryable by gameplay and streamed around the camera when drawn
  * - All blocks placed on the terrain. */
-public class WorldMap extends Image {
+public class WorldMap extends Actor implements Disposable {
 
     private final ObjectMap<TileVector, Block> blocks = new OrderedMap<>();
     private final ObjectMap.Values<Block> blocksIterator2 = new ObjectMap.Values<>(blocks);
+    private final Terrain terrain;
+    private final TerrainStreamer terrainStreamer;
 
-    /** Constructs a map.
-     * @param generator The world generator to obtain data from. */
+    /** Constructs a map. The terrain is only rendered once drawn; a map that is never drawn never creates any textures.
+     * @param generator The world generator to obtain data from. Must be done generating. */
     WorldMap(TerrainGenerator generator) {
         super();
+        setSize(WORLD_VIEWPORT_WIDTH * WORLD_SIZE_MULTIPLICATOR, WORLD_VIEWPORT_HEIGHT * WORLD_SIZE_MULTIPLICATOR);
+        setPosition(0f, 0f);
+        terrain = generator.getTerrain();
+        terrainStreamer = new TerrainStreamer(terrain);
+    }
+
+    /** Draws the terrain visible to the camera; the visible area is the culling area of the parent, see {@link World#render()}. */
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        batch.end(); // The terrain is drawn with its own caches
+        terrainStreamer.draw(getStage().getCamera(), getParent().getCullingArea());
+        batch.begin();
+    }
 
-        // Creating a texture region needs to happen in OpenGL context/thread; else crash
-        Gdx.app.postRunnable(() -> {
-            setDrawable(new TextureRegionDrawable(new TextureRegion((generator.getTexture()))));
-            setSize(WORLD_VIEWPORT_WIDTH * WORLD_SIZE_MULTIPLICATOR, WORLD_VIEWPORT_HEIGHT * WORLD_SIZE_MULTIPLICATOR);
-            setPosition(0f, 0f);
-        });
+    /** Get the terrain of a tile. O(1); see {@link Terrain}.
+     * @param x The column of the tile.
+     * @param y The row of the tile.
+     * @return The type of the tile, or null if it is outside of the world. */
+    public TerrainType getTerrain(int x, int y) {
+        return terrain.getType(x, y);
+    }
+
+    /** @return The terrain of the whole map, for region queries. */
+    public Terrain getTerrain() {
+        return terrain;
     }
 
     /** Get a block on the map.
@@ -68,4 +87,10 @@ public class WorldMap extends Image {
     public void iterateBlocksNested(Consumer<Block> toRun) {
         blocksIterator2.forEach(toRun);
     }
+
+    /** Frees all terrain chunks. Only call on the OpenGL thread. */
+    @Override
+    public void dispose() {
+        terrainStreamer.dispose();
+    }
 }
@@ -1,28 +1,26 @@
 package xyz.angm.game.world.blocks;
 
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.scenes.scene2d.Actor;
-import com.badlogic.gdx.scenes.scene2d.Group;
-import com.badlogic.gdx.scenes.scene2d.ui.Image;
-import com.badlogic.gdx.utils.Align;
 import com.badlogic.gdx.utils.Disposable;
-import com.kotcrab.vis.ui.VisUI;
-import xyz.angm.game.Defactory;
 import xyz.angm.game.world.TileVector;
 
 /** A block can be placed by the player, onto a tile in the world map.
  * Different block types have different function. */
 public class Block implements Disposable {
 
+    /** Field ID of the block's health, used when replicating block state. */
+    public static final int FIELD_HEALTH = 0;
+    /** Field ID of the amount of material the block contains, used when replicating block state. */
+    public static final int FIELD_MATERIAL = 1;
+
     private int type;
     private final TileVector position = new TileVector();
     private Direction direction;
     private int health;
-    private transient Image actor;
-    private transient HealthBar healthBar;
+    private transient BlockRenderer renderer;
     /** The amount of the material the block currently contains, should it need any material to run. */
     private int materialRequiredAmount = 0;
+    /** Fields changed since the last replication; bit n is set if the field with ID n changed. See FIELD_ constants. */
+    private transient int dirtyFields = 0;
 
     /** Required for kryo deserialization; needs a no-arg constructor. */
     private Block() {}
@@ -53,26 +51,50 @@ public class Block implements Disposable {
 
     public void setHealth(int health) {
         this.health = health;
+        healthChanged();
+    }
+
+    /** Returns the value of a replicated field.
+     * @param field The ID of the field, see FIELD_ constants.
+     * @return The current value of the field. */
+    public int getField(int field) {
+        return (field == FIELD_HEALTH) ? health : materialRequiredAmount;
+    }
+
+    /** Sets the value of a replicated field. Used on clients to apply state received from the server.
+     * @param field The ID of the field, see FIELD_ constants.
+     * @param value The new value of the field. */
+    public void setField(int field, int value) {
+        if (field == FIELD_HEALTH) setHealth(value);
+        else materialRequiredAmount = value;
+    }
+
+    /** Returns all fields changed since the last call, and marks them as unchanged.
+     * @return Bit n is set if the field with ID n changed. */
+    public int takeDirtyFields() {
+        int fields = dirtyFields;
+        dirtyFields = 0;
+        return fields;
+    }
+
+    private void markDirty(int field) {
+        dirtyFields |= 1 << field;
     }
 
     public BlockProperties getProperties() {
         return BlockProperties.getProperties(type);
     }
 
-    /** Adds itself to the given group.
-     * @param group Group to be added to */
-    public void registerToGroup(Group group) {
-        if (actor == null) {
-            actor = new Image(Defactory.assets.get(getProperties().getFullTexturePath(), Texture.class));
-            healthBar = new HealthBar();
-        }
-        group.addActor(actor);
-        actor.setSize(1, 1);
-        actor.setOrigin(Align.center);
-        actor.setPosition(position.getX(), position.getY());
-        actor.setRotation(direction.toDegrees());
-        group.addActor(healthBar);
-        healthBar.setPosition(position.getX(), position.getY());
+    /** Adds itself to the given renderer, to be drawn until disposed.
+     * @param renderer Renderer to be added to */
+    public void registerToRenderer(BlockRenderer renderer) {
+        this.renderer = renderer;
+        renderer.add(this);
+    }
+
+    // Tells the renderer to show or hide the health bar
+    private void healthChanged() {
+        if (renderer != null) renderer.healthChanged(this);
     }
 
     /** Can this block do work? Work is anything done by BlockTickRunner.
@@ -84,31 +106,35 @@ public class Block implements Disposable {
     /** Call when the amount of material in the bloc should be incremented. */
     public void incrementMaterial() {
         materialRequiredAmount++;
+        markDirty(FIELD_MATERIAL);
     }
 
     /** Call when the amount of material in the bloc should be decremented. Usually when the block does work. */
     void decrementMaterial() {
         materialRequiredAmount--;
+        markDirty(FIELD_MATERIAL);
     }
 
     /** Call when the block was hit by a beast. */
     public void onHit() {
         health--;
+        markDirty(FIELD_HEALTH);
+        healthChanged();
     }
 
     /** Adds to the HP, 'healing' the block.
      * @param amount The amount to heal. */
     void addToHealth(int amount) {
-        health += amount;
-        health = Math.min(health, getProperties().health); // Cap it
+        int healed = Math.min(health + amount, getProperties().health); // Cap it
+        if (healed == health) return; // Already at full health; nothing to replicate
+        health = healed;
+        markDirty(FIELD_HEALTH);
+        healthChanged();
     }
 
     @Override
     public void dispose() {
-        if (actor != null) {
-            actor.remove();
-            healthBar.remove();
-        }
+        if (renderer != null) renderer.remove(this);
     }
 
     /** The direction a block can be facing. Needed by some blocks; eg conveyor belts. */
@@ -125,15 +151,4 @@ public class Block implements Disposable {
             else return 180;
         }
     }
-
-    /** A simple health bar displaying at the bottom of a block. */
-    private class HealthBar extends Actor {
-
-        @Override
-        public void draw(Batch batch, float parentAlpha) {
-            if (health == getProperties().health) return; // Bar is full, don't show
-            VisUI.getSkin().getDrawable("black-transparent").draw(batch, getX(), getY(), 1f, 0.1f);
-            VisUI.getSkin().getDrawable("green").draw(batch, getX(), getY(), (float) health / getProperties().health, 0.1f);
-        }
-    }
 }
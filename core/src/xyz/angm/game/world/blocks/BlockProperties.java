@@ -53,8 +53,9 @@ public class BlockProperties {
     /** HEALER specific: The damage recovered per heal cycle per block. */
     public int healerRecovery = 1;
 
-    public String getFullTexturePath() {
-        return "textures/blocks/" + texture + ".png";
+    /** @return The name of the block's texture; see {@link xyz.angm.game.Defactory#getTextureRegion(String)}. */
+    public String getTextureName() {
+        return "blocks/" + texture;
     }
 
     @Override
@@ -0,0 +1,196 @@
+package xyz.angm.game.world.blocks;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.kotcrab.vis.ui.VisUI;
+import xyz.angm.game.Defactory;
+
+/** Draws all blocks of a world. Blocks almost never change, so instead of an actor per block, the map is split into
+ * chunks of tiles, and the sprites of each chunk are kept in a {@link SpriteCache}; a chunk is only rebuilt when a block
+ * in it is added or removed. Health bars are drawn in a separate pass, which only covers damaged blocks.
+ * Only chunks intersecting the culling area of the parent are visited, so the cost of a frame depends on what is on
+ * screen and not the size of the base.
+ * Blocks register themselves, see {@link Block#registerToRenderer(BlockRenderer)}.
+ * Nothing is built or drawn until the renderer is drawn; worlds that are never drawn only keep track of their blocks. */
+public class BlockRenderer extends Actor implements Disposable {
+
+    /** The width and height of a chunk, in tiles. */
+    private static final int CHUNK_SIZE = 8;
+    /** The amount of sprites reserved for each chunk; every chunk can be redefined in place as long as it fits. */
+    private static final int SPRITES_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE;
+    /** The amount of chunks the cache can initially hold. Doubled every time it is full. */
+    private static final int INITIAL_CHUNK_CAPACITY = 64;
+    /** The height of health bars, in tiles. */
+    private static final float HEALTH_BAR_HEIGHT = 0.1f;
+
+    /** All chunks containing blocks, or that did at some point, by chunk key. */
+    private final IntMap<Chunk> chunks = new IntMap<>();
+    /** Chunks changed since the last draw. */
+    private final ObjectSet<Chunk> dirtyChunks = new ObjectSet<>();
+    /** The texture of every block type, by block type ID. All of them are in the same atlas, so chunks are drawn in a single call. */
+    private final IntMap<TextureRegion> regions = new IntMap<>();
+    private SpriteCache cache;
+    private int chunkCapacity = INITIAL_CHUNK_CAPACITY;
+    /** The amount of chunks with a cache in {@link #cache}. */
+    private int chunksCached = 0;
+
+    /** Adds a block to be drawn.
+     * @param block The block to add. */
+    void add(Block block) {
+        int key = getChunkKey(block.getPosition().getX() / CHUNK_SIZE, block.getPosition().getY() / CHUNK_SIZE);
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new Chunk();
+            chunks.put(key, chunk);
+        }
+        chunk.blocks.add(block);
+        dirtyChunks.add(chunk);
+        healthChanged(block);
+    }
+
+    /** Removes a block; it will no longer be drawn.
+     * @param block The block to remove. */
+    void remove(Block block) {
+        Chunk chunk = getChunk(block);
+        if (chunk == null) return;
+        chunk.blocks.removeValue(block, true);
+        chunk.damagedBlocks.remove(block);
+        dirtyChunks.add(chunk);
+    }
+
+    /** Call when the health of a block changed, to show or hide its health bar.
+     * @param block The block changed. */
+    void healthChanged(Block block) {
+        Chunk chunk = getChunk(block);
+        if (chunk == null) return;
+        if (block.getHealth() < block.getProperties().health) chunk.damagedBlocks.add(block);
+        else chunk.damagedBlocks.remove(block);
+    }
+
+    /** Draws the blocks in the culling area of the parent, see {@link xyz.angm.game.world.World#render()}. */
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        if (cache == null) cache = new SpriteCache(chunkCapacity * SPRITES_PER_CHUNK, false);
+        if (dirtyChunks.size > 0) rebuildDirtyChunks();
+
+        Rectangle visible = getParent().getCullingArea();
+        int fromX = Math.max((int) Math.floor(visible.x / CHUNK_SIZE), 0);
+        int toX = (int) Math.floor((visible.x + visible.width) / CHUNK_SIZE);
+        int fromY = Math.max((int) Math.floor(visible.y / CHUNK_SIZE), 0);
+        int toY = (int) Math.floor((visible.y + visible.height) / CHUNK_SIZE);
+
+        batch.end(); // Chunks are drawn with their own cache, which does not enable blending itself
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+        cache.setProjectionMatrix(batch.getProjectionMatrix());
+        cache.begin();
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                Chunk chunk = chunks.get(getChunkKey(x, y));
+                if (chunk != null && chunk.blocks.size > 0) cache.draw(chunk.cacheId);
+            }
+        }
+        cache.end();
+        batch.begin();
+
+        for (int y = fromY; y <= toY; y++) {
+            for (int x = fromX; x <= toX; x++) {
+                Chunk chunk = chunks.get(getChunkKey(x, y));
+                if (chunk != null) for (Block block : chunk.damagedBlocks) drawHealthBar(batch, block);
+            }
+        }
+    }
+
+    private void drawHealthBar(Batch batch, Block block) {
+        float x = block.getPosition().getX();
+        float y = block.getPosition().getY();
+        VisUI.getSkin().getDrawable("black-transparent").draw(batch, x, y, 1f, HEALTH_BAR_HEIGHT);
+        VisUI.getSkin().getDrawable("green").draw(batch, x, y, (float) block.getHealth() / block.getProperties().health, HEALTH_BAR_HEIGHT);
+    }
+
+    // Rebuilds all changed chunks, growing the sprite cache first if the new chunks would not fit
+    private void rebuildDirtyChunks() {
+        int newChunks = 0;
+        for (Chunk chunk : dirtyChunks) if (chunk.cacheId == -1 && chunk.blocks.size > 0) newChunks++;
+        if (chunksCached + newChunks > chunkCapacity) {
+            // Caches can not be moved; rebuild all of them in a larger sprite cache
+            while (chunks.size > chunkCapacity) chunkCapacity *= 2;
+            cache.dispose();
+            cache = new SpriteCache(chunkCapacity * SPRITES_PER_CHUNK, false);
+            chunksCached = 0;
+            for (Chunk chunk : chunks.values()) {
+                chunk.cacheId = -1;
+                dirtyChunks.add(chunk);
+            }
+        }
+        for (Chunk chunk : dirtyChunks) chunk.rebuild();
+        dirtyChunks.clear();
+    }
+
+    private TextureRegion getRegion(Block block) {
+        BlockProperties properties = block.getProperties();
+        TextureRegion region = regions.get(properties.id);
+        if (region == null) {
+            region = Defactory.getTextureRegion(properties.getTextureName());
+            regions.put(properties.id, region);
+        }
+        return region;
+    }
+
+    private Chunk getChunk(Block block) {
+        return chunks.get(getChunkKey(block.getPosition().getX() / CHUNK_SIZE, block.getPosition().getY() / CHUNK_SIZE));
+    }
+
+    // Chunks are keyed by both of their coordinates; blocks are never placed at negative or very large positions
+    private static int getChunkKey(int chunkX, int chunkY) {
+        return chunkY << 16 | chunkX;
+    }
+
+    @Override
+    public void dispose() {
+        if (cache != null) cache.dispose();
+    }
+
+    /** A square of tiles, whose blocks are drawn as one cache. */
+    private class Chunk {
+
+        private final Array<Block> blocks = new Array<>(false, 8);
+        /** All blocks of the chunk below full health. */
+        private final ObjectSet<Block> damagedBlocks = new ObjectSet<>();
+        /** The ID of the chunk's cache, or -1 if it was not built yet. */
+        private int cacheId = -1;
+
+        // Redefines the chunk's cache in place, or creates it if there is none yet
+        private void rebuild() {
+            if (blocks.size == 0) return; // Not drawn while empty; the cache is kept for later
+            if (cacheId == -1) cache.beginCache();
+            else cache.beginCache(cacheId);
+
+            TextureRegion region = null;
+            for (Block block : blocks) {
+                region = getRegion(block);
+                float x = block.getPosition().getX();
+                float y = block.getPosition().getY();
+                cache.add(region, x, y, 0.5f, 0.5f, 1f, 1f, 1f, 1f, block.getDirection().toDegrees());
+            }
+
+            // Reserve space for a full chunk, so it can always be redefined in place; degenerate quads are not rasterized.
+            // Needed on every rebuild, as redefining the last cache created replaces it with one of the new size
+            for (int i = blocks.size; i < SPRITES_PER_CHUNK; i++) cache.add(region, 0f, 0f, 0f, 0f);
+            int id = cache.endCache();
+            if (cacheId == -1) {
+                cacheId = id;
+                chunksCached++;
+            }
+        }
+    }
+}
@@ -44,6 +44,7 @@ public class BlockTickRunner implements Runnable {
         }
 
         block.decrementMaterial();
+        world.blockStateChanged(block);
     }
 
     // Called on blocks where material produced != null
@@ -82,6 +83,7 @@ public class BlockTickRunner implements Runnable {
         world.map.iterateBlocksNested(otherBlock -> {
             if (rangeCircle.contains(otherBlock.getPosition().getX() + 0.5f, otherBlock.getPosition().getY() + 0.5f)) {
                 otherBlock.addToHealth(props.healerRecovery);
+                world.blockStateChanged(otherBlock);
             }
         });
     }
@@ -1,6 +1,6 @@
 package xyz.angm.game.world.blocks;
 
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import xyz.angm.game.Defactory;
 
 /** A material. Used by the player to construct blocks.
@@ -14,15 +14,13 @@ public enum Material {
     DIAMOND;
 
     /** Get the texture.
-     * @return The texture of this material. */
-    public Texture getTexture() {
-        return Defactory.assets.get("textures/materials/" + this.name().toLowerCase() + ".png", Texture.class);
+     * @return The texture of this material, in the texture atlas. */
+    public TextureRegion getTexture() {
+        return Defactory.getTextureRegion(getTextureName());
     }
 
-    /** Load/Register all textures into the game asset manager. */
-    public static void loadTextures() {
-        for (Material material : values()) {
-            Defactory.assets.load("textures/materials/" + material.name().toLowerCase() + ".png", Texture.class);
-        }
+    /** @return The name of the texture of this material; see {@link Defactory#getTextureRegion(String)}. */
+    public String getTextureName() {
+        return "materials/" + this.name().toLowerCase();
     }
 }
@@ -16,21 +16,35 @@ public class Beast extends Entity {
 
     private final transient Vector2 tmpV = new Vector2();
     private final transient HealthBar healthBar = new HealthBar();
+    /** Identifies the beast across server and clients; assigned by the server. */
+    private int id;
 
     /** Required for kryo deserialization; needs a no-arg constructor. */
     private Beast() {
         super(1);
         health = BEAST_HEALTH;
-        actorTexture = "textures/beast.png";
+        actorTexture = "beast";
     }
 
     /** Constructs a beast. Requires AssetManager in Game to be ready.
-     * @param position The position of the beast. */
-    public Beast(TileVector position) {
+     * @param position The position of the beast.
+     * @param id The unique ID of the beast. */
+    public Beast(TileVector position, int id) {
         this();
+        this.id = id;
         getPosition().set(position.getX(), position.getY());
     }
 
+    public int getId() {
+        return id;
+    }
+
+    /** Marks the beast as predicted; shown before the server confirmed it exists. Call after registering it to a stage. */
+    public void markPredicted() {
+        actor.getColor().a = 0.5f;
+        act(0f); // Position the actor; predicted beasts are not acted
+    }
+
     /** Get the location the beast would like to be at.
      * @param player The player this beast is targeting.
      * @return The location the beast wants to move to. Usually the CORE. */
@@ -41,6 +55,12 @@ public class Beast extends Entity {
         return tmpV;
     }
 
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+        healthBar.setBounds(getPosition().x, getPosition().y, 1f, 0.1f); // Used for culling
+    }
+
     @Override
     public void registerToStage(Stage stage) {
         super.registerToStage(stage);
@@ -59,8 +79,8 @@ public class Beast extends Entity {
         @Override
         public void draw(Batch batch, float parentAlpha) {
             if (health == BEAST_HEALTH) return; // Bar is full, don't show
-            VisUI.getSkin().getDrawable("black-transparent").draw(batch, getPosition().x, getPosition().y, 1f, 0.1f);
-            VisUI.getSkin().getDrawable("green").draw(batch, getPosition().x, getPosition().y, (float) health / BEAST_HEALTH, 0.1f);
+            VisUI.getSkin().getDrawable("black-transparent").draw(batch, getX(), getY(), getWidth(), getHeight());
+            VisUI.getSkin().getDrawable("green").draw(batch, getX(), getY(), getWidth() * health / BEAST_HEALTH, getHeight());
         }
     }
 }
\ No newline at end of file
@@ -15,7 +15,7 @@ public class Bullet extends Entity {
         getVelocity().set(target).sub(position.getX(), position.getY()).limit(1f);
         // Prevent the bullet from getting stuck in the block it's spawning from
         getPosition().add(getVelocity());
-        actorTexture = "textures/bullet.png";
+        actorTexture = "bullet";
     }
 
     /** Set rotation of the bullet.
@@ -1,6 +1,5 @@
 package xyz.angm.game.world.entities;
 
-import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Image;
@@ -23,7 +22,7 @@ public abstract class Entity implements Disposable {
     public final float entitySize;
     /** Actor for displaying on the screen. */
     transient Image actor;
-    /** Location of the actor's texture. */
+    /** Name of the actor's texture; see {@link Defactory#getTextureRegion(String)}. */
     transient String actorTexture;
 
     /** Create a new entity.
@@ -53,7 +52,7 @@ public abstract class Entity implements Disposable {
     /** Adds itself to the given stage.
      * @param stage Stage to be added to */
     public void registerToStage(Stage stage) {
-        if (actor == null) actor = new Image(Defactory.assets.get(actorTexture, Texture.class));
+        if (actor == null) actor = new Image(Defactory.getTextureRegion(actorTexture));
         stage.addActor(actor);
         actor.setPosition(position.x, position.y);
         actor.setSize(entitySize, entitySize);
@@ -16,6 +16,6 @@ public class Item extends Entity {
         super(0.5f);
         this.material = material;
         getPosition().set(position.getX(), position.getY());
-        actorTexture = "textures/materials/" + material.name().toLowerCase() + ".png";
+        actorTexture = material.getTextureName();
     }
 }
@@ -6,8 +6,8 @@ import xyz.angm.game.world.blocks.BlockProperties;
 import xyz.angm.game.world.blocks.Material;
 
 import java.util.Arrays;
-import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static xyz.angm.game.world.TerrainGenerator.WORLD_SIZE_MULTIPLICATOR;
 import static xyz.angm.game.world.World.WORLD_VIEWPORT_HEIGHT;
@@ -38,7 +38,7 @@ public class Player extends Entity {
     public Player() {
         super(1);
         health = PLAYER_HEALTH;
-        actorTexture = "textures/player.png";
+        actorTexture = "player";
         getPosition().set((WORLD_SIZE_MULTIPLICATOR / 2f) * WORLD_VIEWPORT_WIDTH, (WORLD_SIZE_MULTIPLICATOR / 2f) * WORLD_VIEWPORT_HEIGHT);
         core = new Block(new TileVector().set(getPosition()), 0, Block.Direction.DOWN);
     }
@@ -112,54 +112,49 @@ public class Player extends Entity {
         else return new Block(position, getBlockSelected(), getBlockDirection());
     }
 
-    /** The players inventory containing all material the player has. */
+    /** The players inventory containing all material the player has.
+     * Lock-free and safe to use from any thread: The amounts are kept in an array indexed by material ordinal,
+     * which is never modified; every update replaces it with a changed copy using a single compare-and-set.
+     * This makes multi-material transactions like building a block atomic. */
     @SuppressWarnings("JavaDoc") // Self-explanatory for the most part
     public class Inventory {
 
-        private final EnumMap<Material, Integer> materials = new EnumMap<>(Material.class);
+        private final AtomicReference<int[]> materials = new AtomicReference<>(new int[Material.values().length]);
 
-        private Inventory() {
-            for (Material material : Material.values()) {
-                materials.put(material, 0);
-            }
-        }
+        private Inventory() {}
 
         /** Get the amount of the material left. */
         public int get(Material material) {
-            return materials.get(material);
-        }
-
-        private void set(Material material, int amount) {
-            materials.put(material, amount);
+            return materials.get()[material.ordinal()];
         }
 
         /** Add the amount to the material. */
         public void add(Material material, int amount) {
-            set(material, get(material) + amount);
+            int[] current;
+            int[] updated;
+            do {
+                current = materials.get();
+                updated = current.clone();
+                updated[material.ordinal()] += amount;
+            } while (!materials.compareAndSet(current, updated));
         }
 
-        /** Call when the player wants to build a block.
+        /** Call when the player wants to build a block. Checking and taking the materials is a single atomic transaction.
          * @param blockId The id of the block.
          * @return If the player had enough material. No material will be taken if not. */
         private boolean buildBlock(int blockId) {
-            BlockProperties props = BlockProperties.getProperties(blockId);
-
-            for (Map.Entry<Material, Integer> material : props.buildMaterials.entrySet())
-                if (!isLeft(material.getKey(), material.getValue())) return false;
-
-            props.buildMaterials.forEach(this::remove);
+            Map<Material, Integer> buildMaterials = BlockProperties.getProperties(blockId).buildMaterials;
+            int[] current;
+            int[] updated;
+            do {
+                current = materials.get();
+                updated = current.clone();
+                for (Map.Entry<Material, Integer> material : buildMaterials.entrySet()) {
+                    updated[material.getKey().ordinal()] -= material.getValue();
+                    if (updated[material.getKey().ordinal()] < 0) return false;
+                }
+            } while (!materials.compareAndSet(current, updated));
             return true;
         }
-
-        /** Remove the amount from the material. */
-        private void remove(Material material, int amount) {
-            set(material, get(material) - amount);
-            if (get(material) < 0) set(material, 0);
-        }
-
-        /** Returns if the player has enough of the item left. */
-        private boolean isLeft(Material material, int amount) {
-            return get(material) >= amount;
-        }
     }
 }
@@ -3,19 +3,22 @@ package xyz.angm.game.desktop;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import xyz.angm.game.Defactory;
+import xyz.angm.game.LaunchOptions;
 
 /** Entry class on desktop. */
 public class DesktopLauncher {
 
     /** Create a new game instance with the LWJGL backend.
-     * @param arg Not used. */
+     * @param arg Launch options, see {@link LaunchOptions#parse(String[])}. */
     public static void main (String[] arg) {
+        LaunchOptions options = LaunchOptions.parse(arg);
+
         LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
 
         config.resizable = true;
         config.title = "Defactory";
         config.allowSoftwareMode = true;
 
-        new LwjglApplication(new Defactory(), config);
+        new LwjglApplication(new Defactory(options), config);
     }
 }